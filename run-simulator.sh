@@ -17,5 +17,10 @@ else
     echo "Make sure Redis is running before proceeding."
 fi
 
-# Build and run the application with the simulator profile
-./gradlew bootRun --args="--spring.profiles.active=simulator" 
\ No newline at end of file
+# Build and run the application with the simulator profile.
+# Pass "virtual" to serve requests on virtual threads and compare with the platform-thread run.
+if [ "$1" == "virtual" ]; then
+    ./gradlew bootRun --args="--spring.profiles.active=simulator --spring.threads.virtual.enabled=true"
+else
+    ./gradlew bootRun --args="--spring.profiles.active=simulator"
+fi 
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.example.flashsale.benchmark;
+
+import com.example.flashsale.model.OrderStatus;
+import com.example.flashsale.model.dto.ApiResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building and serializing the {@link ApiResponse} bodies returned on the
+ * purchase and status hot paths, using the ObjectMapper Spring Boot configures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApiResponseSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private String orderId;
+
+    @Setup
+    public void setUp() {
+        try (AnnotationConfigApplicationContext jackson =
+                     new AnnotationConfigApplicationContext(JacksonAutoConfiguration.class)) {
+            objectMapper = jackson.getBean(ObjectMapper.class);
+        }
+        orderId = UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public byte[] purchaseResponse() throws JsonProcessingException {
+        Map<String, Object> response = new HashMap<>();
+        response.put("orderId", orderId);
+        response.put("orderStatus", OrderStatus.COMPLETED);
+        response.put("userId", "bench-user-1");
+        response.put("quantityPurchased", 1);
+        response.put("remainingTickets", 42L);
+        return objectMapper.writeValueAsBytes(ApiResponse.success("Purchase successful", response));
+    }
+
+    @Benchmark
+    public byte[] statusResponse() throws JsonProcessingException {
+        Map<String, Object> status = new HashMap<>();
+        status.put("availableTickets", 0L);
+        status.put("soldOut", true);
+        return objectMapper.writeValueAsBytes(ApiResponse.success(status));
+    }
+
+    @Benchmark
+    public byte[] errorResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ApiResponse.error("Not enough tickets available for purchase"));
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.flashsale.benchmark;
+
+import com.example.flashsale.FlashSaleApplication;
+import com.example.flashsale.model.Sale;
+import com.example.flashsale.model.Ticket;
+import com.example.flashsale.model.User;
+import com.example.flashsale.repository.PurchaseRepository;
+import com.example.flashsale.repository.TicketRepository;
+import com.example.flashsale.repository.UserRepository;
+import com.example.flashsale.service.SaleService;
+import com.example.flashsale.service.TicketService;
+import com.example.flashsale.service.impl.StockShards;
+import org.redisson.api.RBatch;
+import org.redisson.api.RListAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Boots the application without a web server against an in-process Redis server and
+ * the in-memory H2 database, seeds users and tickets for a given stock level and resets
+ * the stock between iterations.
+ */
+public class FlashSaleBenchmarkContext implements AutoCloseable {
+
+    private static final int SEED_CHUNK_SIZE = 10_000;
+
+    private final RedisServer redisServer;
+    private final ConfigurableApplicationContext applicationContext;
+
+    public FlashSaleBenchmarkContext() {
+        int redisPort = freePort();
+        try {
+            redisServer = new RedisServer(redisPort);
+            redisServer.start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to start embedded Redis", e);
+        }
+
+        applicationContext = new SpringApplicationBuilder(FlashSaleApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.data.redis.port=" + redisPort,
+                        "spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID(),
+                        "spring.jpa.show-sql=false",
+                        "flash-sale.total-tickets=0",
+                        "logging.level.root=WARN",
+                        "logging.level.com.example.flashsale=WARN")
+                .run();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return applicationContext.getBean(type);
+    }
+
+    public long getDefaultSaleId() {
+        return getBean(SaleService.class).getDefaultSaleId();
+    }
+
+    /**
+     * Creates the given number of users named {@code bench-user-<n>}.
+     */
+    public void seedUsers(int count) {
+        UserRepository userRepository = getBean(UserRepository.class);
+        List<User> chunk = new ArrayList<>(SEED_CHUNK_SIZE);
+        for (int i = 0; i < count; i++) {
+            chunk.add(User.builder()
+                    .userId("bench-user-" + i)
+                    .username("bench" + i)
+                    .email("bench" + i + "@example.com")
+                    .createdAt(LocalDateTime.now())
+                    .build());
+            if (chunk.size() == SEED_CHUNK_SIZE || i == count - 1) {
+                userRepository.saveAll(chunk);
+                chunk.clear();
+            }
+        }
+    }
+
+    /**
+     * Inserts the tickets of the stock level; none for {@link StockLevel#SOLD_OUT}.
+     */
+    public void seedTickets(StockLevel stockLevel, int tickets) {
+        if (stockLevel == StockLevel.SOLD_OUT) {
+            return;
+        }
+
+        Sale sale = getBean(SaleService.class).getSale(getDefaultSaleId());
+        TicketRepository ticketRepository = getBean(TicketRepository.class);
+        List<Ticket> chunk = new ArrayList<>(SEED_CHUNK_SIZE);
+        for (int i = 0; i < tickets; i++) {
+            chunk.add(Ticket.builder()
+                    .saleId(sale.getId())
+                    .ticketNumber(UUID.randomUUID().toString())
+                    .price(sale.getPrice())
+                    .createdAt(LocalDateTime.now())
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+            if (chunk.size() == SEED_CHUNK_SIZE || i == tickets - 1) {
+                ticketRepository.saveAll(chunk);
+                chunk.clear();
+            }
+        }
+    }
+
+    /**
+     * Puts every ticket back on sale and forgets all purchases, so each iteration starts from
+     * the same stock and no user has reached the per-user limit, then re-seeds the Redis
+     * stock from the database and arranges it for the stock level.
+     */
+    public void resetStock(StockLevel stockLevel) {
+        getBean(PurchaseRepository.class).deleteAllInBatch();
+        getBean(JdbcTemplate.class).update("UPDATE tickets SET sold = FALSE, reserved = FALSE");
+
+        Sale sale = getBean(SaleService.class).getSale(getDefaultSaleId());
+        getBean(TicketService.class).initializeTickets(sale);
+
+        if (stockLevel == StockLevel.NEARLY_SOLD_OUT) {
+            // Move the whole stock onto shard 0, so most buyers find their home shard empty and
+            // fall back while every purchase still succeeds
+            StockShards stockShards = getBean(StockShards.class);
+            List<String> ticketIds = getBean(TicketRepository.class).findUnsoldTicketIds(sale.getId()).stream()
+                    .map(String::valueOf)
+                    .toList();
+            RBatch batch = getBean(RedissonClient.class).createBatch();
+            for (int shard = 0; shard < stockShards.getShardCount(); shard++) {
+                batch.getAtomicLong(stockShards.stockKey(sale.getId(), shard)).setAsync(0);
+                batch.getList(stockShards.poolKey(sale.getId(), shard)).deleteAsync();
+            }
+            RListAsync<String> pool = batch.getList(stockShards.poolKey(sale.getId(), 0), StringCodec.INSTANCE);
+            for (int from = 0; from < ticketIds.size(); from += SEED_CHUNK_SIZE) {
+                pool.addAllAsync(ticketIds.subList(from, Math.min(from + SEED_CHUNK_SIZE, ticketIds.size())));
+            }
+            batch.getAtomicLong(stockShards.stockKey(sale.getId(), 0)).setAsync(ticketIds.size());
+            batch.execute();
+        }
+    }
+
+    @Override
+    public void close() {
+        applicationContext.close();
+        try {
+            redisServer.stop();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to stop embedded Redis", e);
+        }
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to find a free port", e);
+        }
+    }
+}
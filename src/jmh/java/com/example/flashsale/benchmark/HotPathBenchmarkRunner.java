@@ -0,0 +1,37 @@
+package com.example.flashsale.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the hot-path benchmarks once per thread count and writes one JSON result file
+ * per run, so results can be compared between versions.
+ *
+ * Usage: ./gradlew jmhHotPath [-PjmhThreads=1,8,32]
+ */
+public class HotPathBenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        File outputDir = new File(args.length > 0 ? args[0] : "build/reports/jmh");
+        String threadCounts = args.length > 1 ? args[1] : "1,8,32";
+        outputDir.mkdirs();
+
+        for (String threads : threadCounts.split(",")) {
+            int threadCount = Integer.parseInt(threads.trim());
+            Options options = new OptionsBuilder()
+                    .include(PurchaseHotPathBenchmark.class.getSimpleName())
+                    .include(ApiResponseSerializationBenchmark.class.getSimpleName())
+                    .threads(threadCount)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(outputDir, "hot-path-" + threadCount + "-threads.json").getPath())
+                    .build();
+
+            new Runner(options).run();
+        }
+    }
+}
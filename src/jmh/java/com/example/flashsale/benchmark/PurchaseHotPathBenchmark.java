@@ -0,0 +1,89 @@
+package com.example.flashsale.benchmark;
+
+import com.example.flashsale.model.dto.PurchaseRequest;
+import com.example.flashsale.model.dto.PurchaseResult;
+import com.example.flashsale.service.PurchaseService;
+import com.example.flashsale.service.TicketService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the purchase hot path end to end against an in-process Redis and H2.
+ * Every invocation buys as a different user so the per-user limit does not turn
+ * the in-stock case into a stream of rejections; there are as many users and tickets
+ * as one iteration can buy at a few tens of thousands of purchases per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PurchaseHotPathBenchmark {
+
+    private static final int USERS = 200_000;
+    private static final int TICKETS = 200_000;
+
+    @Param({"IN_STOCK", "NEARLY_SOLD_OUT", "SOLD_OUT"})
+    private StockLevel stockLevel;
+
+    private final AtomicInteger userSequence = new AtomicInteger();
+
+    private FlashSaleBenchmarkContext context;
+    private PurchaseService purchaseService;
+    private TicketService ticketService;
+    private long saleId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new FlashSaleBenchmarkContext();
+        context.seedUsers(USERS);
+        context.seedTickets(stockLevel, TICKETS);
+        purchaseService = context.getBean(PurchaseService.class);
+        ticketService = context.getBean(TicketService.class);
+        saleId = context.getDefaultSaleId();
+    }
+
+    /**
+     * Purchases use up stock and per-user allowances, so every iteration (warmup included)
+     * starts again from the full stock of its level with no user having bought anything.
+     */
+    @Setup(Level.Iteration)
+    public void resetStock() {
+        context.resetStock(stockLevel);
+        userSequence.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PurchaseResult purchaseTickets() {
+        int user = Math.floorMod(userSequence.getAndIncrement(), USERS);
+        return purchaseService.purchaseTickets(saleId, PurchaseRequest.builder()
+                .userId("bench-user-" + user)
+                .quantity(1)
+                .build());
+    }
+
+    @Benchmark
+    public boolean checkTicketAvailability() {
+        return ticketService.checkTicketAvailability(saleId, 1);
+    }
+}
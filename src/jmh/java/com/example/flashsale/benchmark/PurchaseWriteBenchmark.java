@@ -0,0 +1,145 @@
+package com.example.flashsale.benchmark;
+
+import com.example.flashsale.model.Purchase;
+import com.example.flashsale.model.Sale;
+import com.example.flashsale.model.Ticket;
+import com.example.flashsale.model.User;
+import com.example.flashsale.model.dto.PendingOrder;
+import com.example.flashsale.model.dto.TicketDefinition;
+import com.example.flashsale.repository.PurchaseRepository;
+import com.example.flashsale.repository.TicketRepository;
+import com.example.flashsale.service.SaleService;
+import com.example.flashsale.service.UserService;
+import com.example.flashsale.service.impl.GroupCommitPurchaseWriter;
+import com.example.flashsale.service.impl.PurchaseWriter;
+import com.example.flashsale.service.impl.TicketBulkWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares ways of writing already-reserved orders to the database under concurrent
+ * requests. Each order claims one ticket and records one purchase. Every iteration
+ * writes a fixed number of orders per thread against freshly inserted tickets, so the
+ * score is the time to write the whole set.
+ *
+ * {@code perPurchase} is the write path from before group commit: one transaction per
+ * order that loads the tickets, saves each one as sold and saves each purchase.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, batchSize = 200)
+@Measurement(iterations = 5, batchSize = 200)
+@Threads(64)
+@Fork(1)
+public class PurchaseWriteBenchmark {
+
+    private static final int USERS = 100;
+
+    private final Queue<PendingOrder> orders = new ConcurrentLinkedQueue<>();
+
+    private FlashSaleBenchmarkContext context;
+    private PurchaseWriter purchaseWriter;
+    private GroupCommitPurchaseWriter groupCommitPurchaseWriter;
+    private TicketBulkWriter ticketBulkWriter;
+    private TicketRepository ticketRepository;
+    private PurchaseRepository purchaseRepository;
+    private UserService userService;
+    private TransactionTemplate transactionTemplate;
+    private Sale sale;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new FlashSaleBenchmarkContext();
+        context.seedUsers(USERS);
+        purchaseWriter = context.getBean(PurchaseWriter.class);
+        groupCommitPurchaseWriter = context.getBean(GroupCommitPurchaseWriter.class);
+        ticketBulkWriter = context.getBean(TicketBulkWriter.class);
+        ticketRepository = context.getBean(TicketRepository.class);
+        purchaseRepository = context.getBean(PurchaseRepository.class);
+        userService = context.getBean(UserService.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        sale = context.getBean(SaleService.class).getSale(context.getDefaultSaleId());
+    }
+
+    /**
+     * Inserts one unsold ticket for every order the coming iteration writes.
+     */
+    @Setup(Level.Iteration)
+    public void seedOrders(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        int count = benchmarkParams.getThreads() * iterationParams.getBatchSize();
+        List<Long> ticketIds = ticketBulkWriter.insert(sale.getId(), sale.getPrice(),
+                Collections.nCopies(count, new TicketDefinition()));
+
+        orders.clear();
+        for (int i = 0; i < ticketIds.size(); i++) {
+            orders.add(PendingOrder.builder()
+                    .orderId(UUID.randomUUID().toString())
+                    .saleId(sale.getId())
+                    .userId("bench-user-" + (i % USERS))
+                    .quantity(1)
+                    .ticketIds(List.of(ticketIds.get(i)))
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void perPurchase() {
+        PendingOrder order = orders.remove();
+        transactionTemplate.executeWithoutResult(status -> {
+            User user = userService.getUserByUserId(order.getUserId()).orElseThrow();
+            for (Ticket ticket : ticketRepository.findAllById(order.getTicketIds())) {
+                ticket.setSold(true);
+                ticket.setUpdatedAt(LocalDateTime.now());
+                ticketRepository.save(ticket);
+                purchaseRepository.save(Purchase.builder()
+                        .saleId(order.getSaleId())
+                        .user(user)
+                        .ticket(ticket)
+                        .transactionId(order.getOrderId())
+                        .amount(ticket.getPrice())
+                        .purchaseTime(LocalDateTime.now())
+                        .status("COMPLETED")
+                        .build());
+            }
+        });
+    }
+
+    @Benchmark
+    public void batchOfOne() {
+        purchaseWriter.persistBatch(List.of(orders.remove()));
+    }
+
+    @Benchmark
+    public void groupCommit() {
+        groupCommitPurchaseWriter.submit(orders.remove()).join();
+    }
+}
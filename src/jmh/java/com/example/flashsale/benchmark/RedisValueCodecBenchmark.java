@@ -0,0 +1,87 @@
+package com.example.flashsale.benchmark;
+
+import com.example.flashsale.codec.CompactBinaryValueCodec;
+import com.example.flashsale.codec.IdempotentResponseSchema;
+import com.example.flashsale.codec.JsonValueCodec;
+import com.example.flashsale.codec.ValueCodec;
+import com.example.flashsale.model.OrderStatus;
+import com.example.flashsale.model.dto.ApiResponse;
+import com.example.flashsale.model.dto.IdempotentResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Redis value codecs on the objects the application stores: encode and
+ * decode cost per operation, with the payload size of each value printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisValueCodecBenchmark {
+
+    @Param({"json", "binary"})
+    private String codecName;
+
+    private ValueCodec codec;
+    private IdempotentResponse idempotentResponse;
+    private byte[] encodedIdempotentResponse;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper;
+        try (AnnotationConfigApplicationContext jackson =
+                     new AnnotationConfigApplicationContext(JacksonAutoConfiguration.class)) {
+            objectMapper = jackson.getBean(ObjectMapper.class);
+        }
+
+        JsonValueCodec json = new JsonValueCodec(objectMapper);
+        codec = "json".equals(codecName)
+                ? json
+                : new CompactBinaryValueCodec(List.of(new IdempotentResponseSchema()), json);
+
+        String orderId = UUID.randomUUID().toString();
+        Map<String, Object> response = new HashMap<>();
+        response.put("orderId", orderId);
+        response.put("orderStatus", OrderStatus.COMPLETED.name());
+        response.put("userId", "bench-user-1");
+        response.put("quantityPurchased", 1);
+        response.put("remainingTickets", 4242L);
+        idempotentResponse = IdempotentResponse.completed(1L, 1, 200,
+                ApiResponse.success("Purchase successful", response));
+
+        encodedIdempotentResponse = codec.encode(idempotentResponse);
+        System.out.printf("%n%s payload bytes: IdempotentResponse=%d%n",
+                codecName, encodedIdempotentResponse.length);
+    }
+
+    @Benchmark
+    public byte[] encodeIdempotentResponse() {
+        return codec.encode(idempotentResponse);
+    }
+
+    @Benchmark
+    public Object decodeIdempotentResponse() {
+        return codec.decode(encodedIdempotentResponse);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.flashsale.benchmark;
+
+/**
+ * Inventory situations the hot path is measured in.
+ */
+public enum StockLevel {
+
+    /** Plenty of stock on every shard; purchases succeed on the user's home shard. */
+    IN_STOCK,
+
+    /**
+     * The whole stock on a single shard, as when the other shards have run dry near the end of
+     * a sale; most purchases find their home shard empty and go through the shard fallback.
+     */
+    NEARLY_SOLD_OUT,
+
+    /**
+     * No stock at all. Purchases are turned away by the reservation script after trying every
+     * shard; availability checks are answered by the node-local sold-out flag.
+     */
+    SOLD_OUT
+}
@@ -0,0 +1,121 @@
+package com.example.flashsale.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node-local view of each sale's ticket stock. Once any node observes that a sale's
+ * stock is exhausted, the sold-out flag is raised locally and broadcast to the other
+ * nodes through Redis pub/sub, so post-sellout requests can be rejected without any I/O.
+ * While sold out, a single caller per recheck interval is let through to re-validate
+ * against Redis, which heals the flag if stock is released again.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StockStateCache {
+
+    private static final String SOLD_OUT_EVENT_PREFIX = "SOLD_OUT:";
+    private static final String RESET_EVENT_PREFIX = "RESET:";
+
+    private final RedissonClient redissonClient;
+
+    @Value("${flash-sale.redis.stock-event-channel}")
+    private String stockEventChannel;
+
+    @Value("${flash-sale.sold-out.recheck-interval-ms}")
+    private long recheckIntervalMs;
+
+    private final Map<Long, SaleStockState> states = new ConcurrentHashMap<>();
+
+    private RTopic topic;
+    private int listenerId;
+
+    @PostConstruct
+    public void subscribe() {
+        topic = redissonClient.getTopic(stockEventChannel, StringCodec.INSTANCE);
+        listenerId = topic.addListener(String.class, (channel, message) -> onEvent(message));
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        topic.removeListener(listenerId);
+    }
+
+    public boolean isSoldOut(long saleId) {
+        SaleStockState state = states.get(saleId);
+        if (state == null || !state.soldOut) {
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        long last = state.lastCheckedAt.get();
+        return now - last < recheckIntervalMs || !state.lastCheckedAt.compareAndSet(last, now);
+    }
+
+    public long getStockSnapshot(long saleId) {
+        SaleStockState state = states.get(saleId);
+        return state == null ? -1 : state.stockSnapshot;
+    }
+
+    public void observeStock(long saleId, long stock) {
+        SaleStockState state = state(saleId);
+        state.stockSnapshot = stock;
+        state.lastCheckedAt.set(System.currentTimeMillis());
+
+        if (stock > 0) {
+            state.soldOut = false;
+            return;
+        }
+
+        if (!state.soldOut) {
+            state.soldOut = true;
+            log.info("Stock of sale {} exhausted. Broadcasting sold-out state to other nodes.", saleId);
+            topic.publish(SOLD_OUT_EVENT_PREFIX + saleId);
+        }
+    }
+
+    public void reset(long saleId, long stock) {
+        SaleStockState state = state(saleId);
+        state.soldOut = false;
+        state.stockSnapshot = stock;
+        topic.publish(RESET_EVENT_PREFIX + saleId + ":" + stock);
+    }
+
+    private SaleStockState state(long saleId) {
+        return states.computeIfAbsent(saleId, id -> new SaleStockState());
+    }
+
+    private void onEvent(String message) {
+        if (message.startsWith(SOLD_OUT_EVENT_PREFIX)) {
+            SaleStockState state = state(Long.parseLong(message.substring(SOLD_OUT_EVENT_PREFIX.length())));
+            state.stockSnapshot = 0;
+            state.lastCheckedAt.set(System.currentTimeMillis());
+            state.soldOut = true;
+        } else if (message.startsWith(RESET_EVENT_PREFIX)) {
+            String[] parts = message.substring(RESET_EVENT_PREFIX.length()).split(":");
+            SaleStockState state = state(Long.parseLong(parts[0]));
+            state.stockSnapshot = Long.parseLong(parts[1]);
+            state.soldOut = false;
+        }
+        log.debug("Received stock event: {}", message);
+    }
+
+    private static final class SaleStockState {
+
+        private final AtomicLong lastCheckedAt = new AtomicLong();
+        private volatile boolean soldOut;
+        private volatile long stockSnapshot = -1;
+    }
+}
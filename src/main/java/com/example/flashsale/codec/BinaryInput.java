@@ -0,0 +1,110 @@
+package com.example.flashsale.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the primitives written by {@link BinaryOutput}.
+ */
+public final class BinaryInput {
+
+    private final byte[] buffer;
+    private int position;
+
+    public BinaryInput(byte[] buffer, int offset) {
+        this.buffer = buffer;
+        this.position = offset;
+    }
+
+    public int readByte() {
+        if (position >= buffer.length) {
+            throw new IllegalArgumentException("Unexpected end of encoded value");
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    public boolean readBoolean() {
+        return readByte() != 0;
+    }
+
+    public long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in encoded value");
+    }
+
+    public int readVarInt() {
+        return Math.toIntExact(readVarLong());
+    }
+
+    public long readSignedVarLong() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public double readDouble() {
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits = (bits << 8) | readByte();
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    public String readString() {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        int byteCount = length - 1;
+        if (position + byteCount > buffer.length) {
+            throw new IllegalArgumentException("Unexpected end of encoded value");
+        }
+        String value = new String(buffer, position, byteCount, StandardCharsets.UTF_8);
+        position += byteCount;
+        return value;
+    }
+
+    public LocalDateTime readDateTime() {
+        if (!readBoolean()) {
+            return null;
+        }
+        long epochSecond = readSignedVarLong();
+        return LocalDateTime.ofEpochSecond(epochSecond, readVarInt(), ZoneOffset.UTC);
+    }
+
+    public Map<String, Object> readScalarMap() {
+        int size = readVarInt();
+        if (size == 0) {
+            return null;
+        }
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < size - 1; i++) {
+            String key = readString();
+            map.put(key, readScalar());
+        }
+        return map;
+    }
+
+    public Object readScalar() {
+        int type = readByte();
+        return switch (type) {
+            case BinaryOutput.ScalarType.NULL -> null;
+            case BinaryOutput.ScalarType.STRING -> readString();
+            case BinaryOutput.ScalarType.LONG -> readSignedVarLong();
+            case BinaryOutput.ScalarType.INT -> Math.toIntExact(readSignedVarLong());
+            case BinaryOutput.ScalarType.TRUE -> Boolean.TRUE;
+            case BinaryOutput.ScalarType.FALSE -> Boolean.FALSE;
+            case BinaryOutput.ScalarType.DOUBLE -> readDouble();
+            default -> throw new IllegalArgumentException("Unknown scalar type: " + type);
+        };
+    }
+}
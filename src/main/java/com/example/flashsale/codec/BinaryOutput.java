@@ -0,0 +1,146 @@
+package com.example.flashsale.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Growable byte buffer with the primitives the binary schemas are written in. Integers
+ * are varints (zigzag for signed values), so small numbers take one or two bytes.
+ */
+public final class BinaryOutput {
+
+    private byte[] buffer;
+    private int position;
+
+    public BinaryOutput(int initialCapacity) {
+        buffer = new byte[initialCapacity];
+    }
+
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    public void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeSignedVarLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeDouble(double value) {
+        long bits = Double.doubleToLongBits(value);
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[position++] = (byte) (bits >>> shift);
+        }
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string; null is written as length 0 with a marker.
+     */
+    public void writeString(String value) {
+        if (value == null) {
+            writeVarLong(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length + 1L);
+        writeBytes(bytes);
+    }
+
+    public void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    public void writeDateTime(LocalDateTime value) {
+        writeBoolean(value != null);
+        if (value != null) {
+            writeSignedVarLong(value.toEpochSecond(ZoneOffset.UTC));
+            writeVarLong(value.getNano());
+        }
+    }
+
+    /**
+     * Writes a map of scalar values, each prefixed with its type so it reads back as the
+     * same Java type. Enums are written by name, as they would be in JSON.
+     */
+    public void writeScalarMap(Map<String, Object> map) {
+        if (map == null) {
+            writeVarLong(0);
+            return;
+        }
+        writeVarLong(map.size() + 1L);
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            writeString(entry.getKey());
+            writeScalar(entry.getValue());
+        }
+    }
+
+    public void writeScalar(Object value) {
+        switch (value) {
+            case null -> writeByte(ScalarType.NULL);
+            case String string -> {
+                writeByte(ScalarType.STRING);
+                writeString(string);
+            }
+            case Enum<?> constant -> {
+                writeByte(ScalarType.STRING);
+                writeString(constant.name());
+            }
+            case Long number -> {
+                writeByte(ScalarType.LONG);
+                writeSignedVarLong(number);
+            }
+            case Integer number -> {
+                writeByte(ScalarType.INT);
+                writeSignedVarLong(number);
+            }
+            case Boolean flag -> writeByte(flag ? ScalarType.TRUE : ScalarType.FALSE);
+            case Double number -> {
+                writeByte(ScalarType.DOUBLE);
+                writeDouble(number);
+            }
+            default -> throw new IllegalArgumentException("Unsupported scalar type: " + value.getClass().getName());
+        }
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (position + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + extra));
+        }
+    }
+
+    static final class ScalarType {
+
+        static final int NULL = 0;
+        static final int STRING = 1;
+        static final int LONG = 2;
+        static final int INT = 3;
+        static final int TRUE = 4;
+        static final int FALSE = 5;
+        static final int DOUBLE = 6;
+
+        private ScalarType() {
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.flashsale.codec;
+
+/**
+ * Binary layout of one value type. Every encoded value starts with the schema's tag and
+ * the version it was written with; fields follow in a fixed order without names.
+ *
+ * To stay readable across deployments a schema only ever appends fields: a new version
+ * writes the old fields first and {@link #read} fills in defaults for fields an older
+ * version did not write. Tags are never reused.
+ */
+public interface BinarySchema<T> {
+
+    int tag();
+
+    int version();
+
+    Class<T> type();
+
+    void write(T value, BinaryOutput out);
+
+    T read(BinaryInput in, int version);
+}
@@ -0,0 +1,89 @@
+package com.example.flashsale.codec;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Schema-based binary encoding. Registered types are written as a tag byte, a version
+ * byte and their fields as varints and length-prefixed strings, without field or class
+ * names. Values of any other type are written behind tag 0 with the fallback codec, so
+ * the codec can be installed on a client that also stores types without a schema.
+ */
+public class CompactBinaryValueCodec implements ValueCodec {
+
+    static final int FALLBACK_TAG = 0;
+
+    private final Map<Class<?>, BinarySchema<?>> schemasByType = new HashMap<>();
+    private final BinarySchema<?>[] schemasByTag;
+    private final ValueCodec fallback;
+
+    public CompactBinaryValueCodec(List<BinarySchema<?>> schemas, ValueCodec fallback) {
+        int maxTag = 0;
+        for (BinarySchema<?> schema : schemas) {
+            if (schema.tag() <= FALLBACK_TAG || schema.tag() > 0xFF) {
+                throw new IllegalArgumentException("Schema tag out of range: " + schema.tag());
+            }
+            maxTag = Math.max(maxTag, schema.tag());
+        }
+
+        schemasByTag = new BinarySchema<?>[maxTag + 1];
+        for (BinarySchema<?> schema : schemas) {
+            if (schemasByTag[schema.tag()] != null) {
+                throw new IllegalArgumentException("Duplicate schema tag: " + schema.tag());
+            }
+            schemasByTag[schema.tag()] = schema;
+            schemasByType.put(schema.type(), schema);
+        }
+        this.fallback = fallback;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        BinarySchema<?> schema = value != null ? schemasByType.get(value.getClass()) : null;
+        if (schema == null) {
+            byte[] encoded = fallback.encode(value);
+            byte[] tagged = new byte[encoded.length + 1];
+            tagged[0] = FALLBACK_TAG;
+            System.arraycopy(encoded, 0, tagged, 1, encoded.length);
+            return tagged;
+        }
+
+        BinaryOutput out = new BinaryOutput(64);
+        out.writeByte(schema.tag());
+        out.writeByte(schema.version());
+        write(schema, value, out);
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+
+        int tag = bytes[0] & 0xFF;
+        if (tag == FALLBACK_TAG) {
+            return fallback.decode(Arrays.copyOfRange(bytes, 1, bytes.length));
+        }
+
+        BinarySchema<?> schema = tag < schemasByTag.length ? schemasByTag[tag] : null;
+        if (schema == null) {
+            throw new IllegalArgumentException("Unknown schema tag: " + tag);
+        }
+
+        BinaryInput in = new BinaryInput(bytes, 1);
+        int version = in.readByte();
+        if (version > schema.version()) {
+            throw new IllegalArgumentException("Value of " + schema.type().getSimpleName()
+                    + " was written with schema version " + version + ", this node reads up to " + schema.version());
+        }
+        return schema.read(in, version);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void write(BinarySchema<T> schema, Object value, BinaryOutput out) {
+        schema.write((T) value, out);
+    }
+}
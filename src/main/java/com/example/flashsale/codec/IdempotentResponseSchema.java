@@ -0,0 +1,60 @@
+package com.example.flashsale.codec;
+
+import com.example.flashsale.model.dto.ApiResponse;
+import com.example.flashsale.model.dto.IdempotentResponse;
+
+import java.util.Map;
+
+public class IdempotentResponseSchema implements BinarySchema<IdempotentResponse> {
+
+    @Override
+    public int tag() {
+        return 1;
+    }
+
+    @Override
+    public int version() {
+        return 1;
+    }
+
+    @Override
+    public Class<IdempotentResponse> type() {
+        return IdempotentResponse.class;
+    }
+
+    @Override
+    public void write(IdempotentResponse value, BinaryOutput out) {
+        out.writeBoolean(value.isCompleted());
+        out.writeSignedVarLong(value.getSaleId());
+        out.writeVarLong(value.getQuantity());
+        out.writeVarLong(value.getHttpStatus());
+
+        ApiResponse<Map<String, Object>> body = value.getBody();
+        out.writeBoolean(body != null);
+        if (body != null) {
+            out.writeBoolean(body.isSuccess());
+            out.writeString(body.getMessage());
+            out.writeScalarMap(body.getData());
+            out.writeDateTime(body.getTimestamp());
+        }
+    }
+
+    @Override
+    public IdempotentResponse read(BinaryInput in, int version) {
+        IdempotentResponse.IdempotentResponseBuilder response = IdempotentResponse.builder()
+                .completed(in.readBoolean())
+                .saleId(in.readSignedVarLong())
+                .quantity(in.readVarInt())
+                .httpStatus(in.readVarInt());
+
+        if (in.readBoolean()) {
+            response.body(ApiResponse.<Map<String, Object>>builder()
+                    .success(in.readBoolean())
+                    .message(in.readString())
+                    .data(in.readScalarMap())
+                    .timestamp(in.readDateTime())
+                    .build());
+        }
+        return response.build();
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.flashsale.codec;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+/**
+ * JSON with the class name of every value embedded, as written by
+ * {@link GenericJackson2JsonRedisSerializer}. Readable in redis-cli, but every value pays
+ * for its field and class names.
+ */
+public class JsonValueCodec implements ValueCodec {
+
+    private final GenericJackson2JsonRedisSerializer serializer;
+
+    public JsonValueCodec(ObjectMapper objectMapper) {
+        // Start from the application's mapper so java.time and the other registered modules apply
+        ObjectMapper typedMapper = objectMapper.copy();
+        typedMapper.activateDefaultTyping(typedMapper.getPolymorphicTypeValidator(),
+                ObjectMapper.DefaultTyping.EVERYTHING, JsonTypeInfo.As.PROPERTY);
+        serializer = new GenericJackson2JsonRedisSerializer(typedMapper);
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        return serializer.serialize(value);
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        return serializer.deserialize(bytes);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.flashsale.codec;
+
+/**
+ * Turns values stored in Redis into bytes and back. Both Redis clients are configured
+ * with the same codec, so a value written through one can be read through the other.
+ */
+public interface ValueCodec {
+
+    byte[] encode(Object value);
+
+    Object decode(byte[] bytes);
+}
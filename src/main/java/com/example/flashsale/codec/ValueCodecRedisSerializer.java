@@ -0,0 +1,34 @@
+package com.example.flashsale.codec;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Spring Data Redis view of a {@link ValueCodec}.
+ */
+public class ValueCodecRedisSerializer implements RedisSerializer<Object> {
+
+    private final ValueCodec codec;
+
+    public ValueCodecRedisSerializer(ValueCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        try {
+            return codec.encode(value);
+        } catch (IllegalArgumentException e) {
+            throw new SerializationException("Could not encode value", e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        try {
+            return codec.decode(bytes);
+        } catch (IllegalArgumentException e) {
+            throw new SerializationException("Could not decode value", e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.flashsale.codec;
+
+import io.netty.buffer.Unpooled;
+import org.redisson.client.codec.BaseCodec;
+import org.redisson.client.protocol.Decoder;
+import org.redisson.client.protocol.Encoder;
+
+/**
+ * Redisson view of a {@link ValueCodec}, installed as the client's default codec.
+ */
+public class ValueCodecRedissonCodec extends BaseCodec {
+
+    private final Encoder encoder;
+    private final Decoder<Object> decoder;
+
+    public ValueCodecRedissonCodec(ValueCodec codec) {
+        this.encoder = value -> Unpooled.wrappedBuffer(codec.encode(value));
+        this.decoder = (buf, state) -> {
+            byte[] bytes = new byte[buf.readableBytes()];
+            buf.readBytes(bytes);
+            return codec.decode(bytes);
+        };
+    }
+
+    @Override
+    public Decoder<Object> getValueDecoder() {
+        return decoder;
+    }
+
+    @Override
+    public Encoder getValueEncoder() {
+        return encoder;
+    }
+}
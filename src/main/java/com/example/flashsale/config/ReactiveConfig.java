@@ -0,0 +1,26 @@
+package com.example.flashsale.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@Configuration
+public class ReactiveConfig {
+
+    @Value("${flash-sale.reactive.jpa-threads}")
+    private int jpaThreads;
+
+    @Value("${flash-sale.reactive.jpa-queue-size}")
+    private int jpaQueueSize;
+
+    /**
+     * Bounded scheduler for the blocking JPA calls made on behalf of reactive endpoints,
+     * so they never run on Redisson's or the servlet container's threads.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler jpaScheduler() {
+        return Schedulers.newBoundedElastic(jpaThreads, jpaQueueSize, "jpa");
+    }
+}
@@ -1,5 +1,12 @@
 package com.example.flashsale.config;
 
+import com.example.flashsale.codec.CompactBinaryValueCodec;
+import com.example.flashsale.codec.IdempotentResponseSchema;
+import com.example.flashsale.codec.JsonValueCodec;
+import com.example.flashsale.codec.ValueCodec;
+import com.example.flashsale.codec.ValueCodecRedisSerializer;
+import com.example.flashsale.codec.ValueCodecRedissonCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
 import org.redisson.config.Config;
@@ -8,9 +15,10 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.util.List;
+
 @Configuration
 public class RedisConfig {
 
@@ -20,22 +28,35 @@ public class RedisConfig {
     @Value("${spring.data.redis.port}")
     private int redisPort;
 
+    @Value("${flash-sale.redis.value-codec}")
+    private String valueCodec;
+
+    @Bean
+    public ValueCodec redisValueCodec(ObjectMapper objectMapper) {
+        JsonValueCodec json = new JsonValueCodec(objectMapper);
+        if ("json".equals(valueCodec)) {
+            return json;
+        }
+        return new CompactBinaryValueCodec(List.of(new IdempotentResponseSchema()), json);
+    }
+
     @Bean
-    public RedissonClient redissonClient() {
+    public RedissonClient redissonClient(ValueCodec redisValueCodec) {
         Config config = new Config();
+        config.setCodec(new ValueCodecRedissonCodec(redisValueCodec));
         config.useSingleServer()
                 .setAddress("redis://" + redisHost + ":" + redisPort);
         return Redisson.create(config);
     }
 
     @Bean
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory, ValueCodec redisValueCodec) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
         template.setKeySerializer(new StringRedisSerializer());
-        template.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+        template.setValueSerializer(new ValueCodecRedisSerializer(redisValueCodec));
         template.setHashKeySerializer(new StringRedisSerializer());
-        template.setHashValueSerializer(new GenericJackson2JsonRedisSerializer());
+        template.setHashValueSerializer(new ValueCodecRedisSerializer(redisValueCodec));
         return template;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,80 @@
+package com.example.flashsale.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limits how many virtual threads hold a JDBC connection at once. The driver pins a
+ * virtual thread to its carrier while it works, so unbounded JDBC on virtual threads can
+ * occupy every carrier and stall all other requests. A virtual thread waits for a permit
+ * before taking a connection and parks while it waits; the permit is returned when the
+ * connection is closed. Platform threads are not limited.
+ */
+class VirtualThreadBoundedDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+
+    VirtualThreadBoundedDataSource(DataSource target, int maxConcurrent) {
+        super(target);
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return bounded(super::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return bounded(() -> super.getConnection(username, password));
+    }
+
+    private Connection bounded(ConnectionSource source) throws SQLException {
+        if (!Thread.currentThread().isVirtual()) {
+            return source.get();
+        }
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting to use JDBC", e);
+        }
+
+        try {
+            return releasingOnClose(source.get());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Connection releasingOnClose(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                            permits.release();
+                        }
+                    }
+                });
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+
+        Connection get() throws SQLException;
+    }
+}
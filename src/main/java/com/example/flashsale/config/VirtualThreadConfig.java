@@ -0,0 +1,61 @@
+package com.example.flashsale.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Opt-in virtual-thread mode, enabled with spring.threads.virtual.enabled=true.
+ * Spring Boot runs Tomcat request handling, and with it the purchase path, on virtual
+ * threads. JDBC against H2 enters synchronized sections that pin a virtual thread to its
+ * carrier, so database writes are kept on the platform thread of the group-commit stage
+ * and request threads only wait on its futures, which unmounts them. The JDBC left on
+ * request threads (user lookups on a cache miss, holds, listings, and purchase writes
+ * when group commit is off) goes through {@link VirtualThreadBoundedDataSource}, which
+ * lets only a bounded number of virtual threads hold a connection, so pinned threads
+ * never occupy every carrier. Run with ./gradlew bootRun -PtracePinnedThreads to report
+ * any pinning that is left.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadConfig {
+
+    @Value("${flash-sale.group-commit.enabled}")
+    private boolean groupCommitEnabled;
+
+    @Bean
+    public static BeanPostProcessor virtualThreadJdbcLimiter(
+            @Value("${flash-sale.virtual-threads.max-concurrent-jdbc}") int maxConcurrentJdbc) {
+        // Keep at least one carrier free of JDBC, so requests that need no database are always served
+        int permits = maxConcurrentJdbc > 0
+                ? maxConcurrentJdbc
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof VirtualThreadBoundedDataSource)) {
+                    log.info("JDBC on virtual threads limited to {} concurrent connections", permits);
+                    return new VirtualThreadBoundedDataSource(dataSource, permits);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @PostConstruct
+    public void init() {
+        log.info("Serving requests on virtual threads");
+
+        if (!groupCommitEnabled) {
+            log.warn("Group commit is disabled: purchase writes run JDBC on request threads and "
+                    + "queue for the limited JDBC permits. Enable flash-sale.group-commit.enabled.");
+        }
+    }
+}
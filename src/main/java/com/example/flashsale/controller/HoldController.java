@@ -0,0 +1,97 @@
+package com.example.flashsale.controller;
+
+import com.example.flashsale.model.dto.ApiResponse;
+import com.example.flashsale.model.dto.HoldResult;
+import com.example.flashsale.model.dto.PurchaseRequest;
+import com.example.flashsale.model.dto.PurchaseResult;
+import com.example.flashsale.service.HoldService;
+import com.example.flashsale.service.SaleService;
+import com.example.flashsale.service.TicketService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/sales/{saleId}/holds")
+@RequiredArgsConstructor
+@Slf4j
+public class HoldController {
+
+    private final HoldService holdService;
+    private final SaleService saleService;
+    private final TicketService ticketService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<HoldResult>> hold(@PathVariable long saleId,
+                                                        @Valid @RequestBody PurchaseRequest request) {
+        log.info("Hold request received for sale: {} from user: {}, quantity: {}",
+                saleId, request.getUserId(), request.getQuantity());
+        saleService.getSale(saleId);
+
+        if (!ticketService.checkTicketAvailability(saleId, request.getQuantity())) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("Not enough tickets available to hold"));
+        }
+
+        HoldResult result = holdService.hold(saleId, request.getUserId(), request.getQuantity());
+        if (!result.isHeld()) {
+            return switch (result.getReservationStatus()) {
+                case USER_LIMIT -> ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(ApiResponse.error("Purchase limit reached for user: " + request.getUserId()));
+                default -> ResponseEntity.badRequest().body(ApiResponse.error("Not enough tickets available to hold"));
+            };
+        }
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success("Tickets held until " + result.getExpiresAt(), result));
+    }
+
+    @PostMapping("/{holdId}/confirm")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> confirm(@PathVariable long saleId,
+                                                                    @PathVariable String holdId,
+                                                                    @RequestParam String userId) {
+        log.info("Confirming hold {} of sale: {} for user: {}", holdId, saleId, userId);
+        Optional<PurchaseResult> confirmed = holdService.confirm(saleId, holdId, userId);
+        if (confirmed.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.GONE)
+                    .body(ApiResponse.error("Hold has expired or was cancelled: " + holdId));
+        }
+
+        PurchaseResult result = confirmed.get();
+        if (!PurchaseResponses.isAccepted(result)) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Purchase failed. Please try again later."));
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("orderId", result.getOrderId());
+        response.put("orderStatus", result.getOrderStatus());
+        response.put("userId", userId);
+
+        return ResponseEntity.ok(ApiResponse.success("Purchase successful", response));
+    }
+
+    @DeleteMapping("/{holdId}")
+    public ResponseEntity<ApiResponse<Void>> cancel(@PathVariable long saleId,
+                                                    @PathVariable String holdId,
+                                                    @RequestParam String userId) {
+        log.info("Cancelling hold {} of sale: {} for user: {}", holdId, saleId, userId);
+        if (!holdService.cancel(saleId, holdId, userId)) {
+            return ResponseEntity.status(HttpStatus.GONE)
+                    .body(ApiResponse.error("Hold has expired or was already confirmed: " + holdId));
+        }
+        return ResponseEntity.ok(ApiResponse.success("Hold cancelled", null));
+    }
+}
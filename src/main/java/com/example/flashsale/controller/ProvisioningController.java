@@ -0,0 +1,66 @@
+package com.example.flashsale.controller;
+
+import com.example.flashsale.model.dto.ApiResponse;
+import com.example.flashsale.model.dto.ProvisioningReport;
+import com.example.flashsale.service.TicketProvisioningService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+public class ProvisioningController {
+
+    private static final String TEXT_CSV = "text/csv";
+
+    private final TicketProvisioningService ticketProvisioningService;
+
+    // The request body is read as a stream, so the upload is never held in memory as a whole
+    @PostMapping(value = "/api/sales/{saleId}/tickets/import", consumes = TEXT_CSV)
+    public ResponseEntity<ApiResponse<ProvisioningReport>> importCsv(@PathVariable long saleId,
+                                                                    InputStream body) throws IOException {
+        return importTickets(saleId, TicketProvisioningService.Format.CSV, body);
+    }
+
+    @PostMapping(value = "/api/sales/{saleId}/tickets/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ApiResponse<ProvisioningReport>> importNdjson(@PathVariable long saleId,
+                                                                       InputStream body) throws IOException {
+        return importTickets(saleId, TicketProvisioningService.Format.NDJSON, body);
+    }
+
+    @GetMapping("/api/provisioning/jobs")
+    public ResponseEntity<ApiResponse<List<ProvisioningReport>>> getJobs() {
+        return ResponseEntity.ok(ApiResponse.success(ticketProvisioningService.getJobs()));
+    }
+
+    @GetMapping("/api/provisioning/jobs/{jobId}")
+    public ResponseEntity<ApiResponse<ProvisioningReport>> getJob(@PathVariable String jobId) {
+        return ticketProvisioningService.getJob(jobId)
+                .map(report -> ResponseEntity.ok(ApiResponse.success(report)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(ApiResponse.error("Provisioning job not found: " + jobId)));
+    }
+
+    private ResponseEntity<ApiResponse<ProvisioningReport>> importTickets(
+            long saleId, TicketProvisioningService.Format format, InputStream body) throws IOException {
+        log.info("Importing {} tickets into sale: {}", format, saleId);
+        try (body) {
+            ProvisioningReport report = ticketProvisioningService.importTickets(saleId, format, body);
+            if ("FAILED".equals(report.getStatus())) {
+                return ResponseEntity.badRequest().body(ApiResponse.error(report.getError(), report));
+            }
+            return ResponseEntity.ok(ApiResponse.success("Tickets imported successfully", report));
+        }
+    }
+}
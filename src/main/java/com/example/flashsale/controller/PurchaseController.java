@@ -4,7 +4,7 @@ import com.example.flashsale.model.Purchase;
 import com.example.flashsale.model.dto.ApiResponse;
 import com.example.flashsale.model.dto.PurchaseRequest;
 import com.example.flashsale.service.PurchaseService;
-import com.example.flashsale.service.TicketService;
+import com.example.flashsale.service.SaleService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -14,6 +14,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -28,34 +29,30 @@ import java.util.Map;
 public class PurchaseController {
 
     private final PurchaseService purchaseService;
-    private final TicketService ticketService;
+    private final SaleService saleService;
+    private final PurchaseHandler purchaseHandler;
 
     @PostMapping
     public ResponseEntity<ApiResponse<Map<String, Object>>> purchaseTickets(
-            @Valid @RequestBody PurchaseRequest request) {
+            @Valid @RequestBody PurchaseRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKeyHeader) {
         log.info("Purchase request received from user: {}, quantity: {}", request.getUserId(), request.getQuantity());
+        return purchaseHandler.purchase(saleService.getDefaultSaleId(), request, idempotencyKeyHeader);
+    }
 
-        // Check if tickets are available
-        if (!ticketService.checkTicketAvailability(request.getQuantity())) {
-            log.warn("Not enough tickets available for purchase. Requested: {}", request.getQuantity());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(ApiResponse.error("Not enough tickets available for purchase"));
-        }
-
-        // Process the purchase
-        boolean purchaseSuccessful = purchaseService.purchaseTickets(request);
-
-        if (purchaseSuccessful) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("userId", request.getUserId());
-            response.put("quantityPurchased", request.getQuantity());
-            response.put("remainingTickets", ticketService.getAvailableTicketsCount());
+    @GetMapping("/orders/{orderId}")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getOrderStatus(@PathVariable String orderId) {
+        log.info("Fetching status for order: {}", orderId);
 
-            return ResponseEntity.ok(ApiResponse.success("Purchase successful", response));
-        } else {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.error("Purchase failed. Please try again later."));
-        }
+        return purchaseService.getOrderStatus(orderId)
+                .map(status -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("orderId", orderId);
+                    response.put("status", status);
+                    return ResponseEntity.ok(ApiResponse.success(response));
+                })
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(ApiResponse.error("Order not found with id: " + orderId)));
     }
 
     @GetMapping("/user/{userId}")
@@ -68,7 +65,7 @@ public class PurchaseController {
     @GetMapping("/user/{userId}/count")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getUserPurchaseCount(@PathVariable String userId) {
         log.info("Fetching purchase count for user: {}", userId);
-        long count = purchaseService.countUserPurchases(userId);
+        long count = purchaseService.countUserPurchases(saleService.getDefaultSaleId(), userId);
 
         Map<String, Object> response = new HashMap<>();
         response.put("userId", userId);
@@ -0,0 +1,105 @@
+package com.example.flashsale.controller;
+
+import com.example.flashsale.model.dto.ApiResponse;
+import com.example.flashsale.model.dto.IdempotentResponse;
+import com.example.flashsale.model.dto.PurchaseRequest;
+import com.example.flashsale.model.dto.PurchaseResult;
+import com.example.flashsale.service.IdempotencyService;
+import com.example.flashsale.service.PurchaseService;
+import com.example.flashsale.service.TicketService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Runs an idempotent purchase against one sale, shared by the default-sale and the
+ * sale-scoped purchase endpoints.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+class PurchaseHandler {
+
+    private final PurchaseService purchaseService;
+    private final TicketService ticketService;
+    private final IdempotencyService idempotencyService;
+
+    ResponseEntity<ApiResponse<Map<String, Object>>> purchase(long saleId, PurchaseRequest request,
+                                                              String idempotencyKeyHeader) {
+        // Once the sale is sold out every request, retries included, is turned away on a local flag
+        // before any Redis work
+        if (ticketService.isSoldOut(saleId)) {
+            log.warn("Sale {} is sold out. Rejecting purchase for user: {}", saleId, request.getUserId());
+            return PurchaseResponses.notEnoughTickets();
+        }
+
+        String idempotencyKey = StringUtils.hasText(idempotencyKeyHeader) ? idempotencyKeyHeader : request.getIdempotencyKey();
+        if (!StringUtils.hasText(idempotencyKey)) {
+            return processPurchase(saleId, request);
+        }
+
+        String userId = request.getUserId();
+        Optional<IdempotentResponse> stored = idempotencyService.find(userId, idempotencyKey);
+        if (stored.isEmpty() && !idempotencyService.tryClaim(userId, idempotencyKey, saleId, request.getQuantity())) {
+            // Lost the race to a concurrent duplicate
+            stored = idempotencyService.find(userId, idempotencyKey);
+            if (stored.isEmpty()) {
+                return PurchaseResponses.idempotencyKeyInProgress();
+            }
+        }
+        if (stored.isPresent()) {
+            log.info("Duplicate purchase request from user: {} with idempotency key: {}", userId, idempotencyKey);
+            return replay(stored.get(), saleId, request);
+        }
+
+        ResponseEntity<ApiResponse<Map<String, Object>>> response;
+        try {
+            response = processPurchase(saleId, request);
+        } catch (RuntimeException e) {
+            idempotencyService.release(userId, idempotencyKey);
+            throw e;
+        }
+
+        // Server errors are not a final outcome, so let the client retry them
+        if (response.getStatusCode().is5xxServerError()) {
+            idempotencyService.release(userId, idempotencyKey);
+        } else {
+            idempotencyService.complete(userId, idempotencyKey, IdempotentResponse.completed(
+                    saleId, request.getQuantity(), response.getStatusCode().value(), response.getBody()));
+        }
+        return response;
+    }
+
+    private ResponseEntity<ApiResponse<Map<String, Object>>> replay(IdempotentResponse stored, long saleId,
+                                                                    PurchaseRequest request) {
+        if (stored.getSaleId() != saleId || stored.getQuantity() != request.getQuantity()) {
+            return PurchaseResponses.idempotencyKeyReused();
+        }
+        if (!stored.isCompleted()) {
+            return PurchaseResponses.idempotencyKeyInProgress();
+        }
+        return PurchaseResponses.replay(stored);
+    }
+
+    private ResponseEntity<ApiResponse<Map<String, Object>>> processPurchase(long saleId, PurchaseRequest request) {
+        // Check if tickets are available
+        if (!ticketService.checkTicketAvailability(saleId, request.getQuantity())) {
+            log.warn("Not enough tickets available for purchase in sale {}. Requested: {}", saleId, request.getQuantity());
+            return PurchaseResponses.notEnoughTickets();
+        }
+
+        // Process the purchase
+        PurchaseResult result = purchaseService.purchaseTickets(saleId, request);
+
+        if (!PurchaseResponses.isAccepted(result)) {
+            return PurchaseResponses.rejected(request, result);
+        }
+
+        return PurchaseResponses.accepted(request, result, ticketService.getAvailableTicketsCount(saleId));
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.flashsale.controller;
+
+import com.example.flashsale.model.OrderStatus;
+import com.example.flashsale.model.ReservationStatus;
+import com.example.flashsale.model.dto.ApiResponse;
+import com.example.flashsale.model.dto.IdempotentResponse;
+import com.example.flashsale.model.dto.PurchaseRequest;
+import com.example.flashsale.model.dto.PurchaseResult;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps purchase outcomes to HTTP responses, shared by the blocking and the reactive
+ * purchase endpoints so both offer the same contract.
+ */
+final class PurchaseResponses {
+
+    private PurchaseResponses() {
+    }
+
+    static boolean isAccepted(PurchaseResult result) {
+        return result.getReservationStatus() == ReservationStatus.OK
+                && result.getOrderStatus() != OrderStatus.FAILED;
+    }
+
+    static ResponseEntity<ApiResponse<Map<String, Object>>> rejected(PurchaseRequest request, PurchaseResult result) {
+        if (result.getReservationStatus() == ReservationStatus.SOLD_OUT) {
+            return notEnoughTickets();
+        }
+
+        if (result.getReservationStatus() == ReservationStatus.USER_LIMIT) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error("Purchase limit reached for user: " + request.getUserId()));
+        }
+
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error("Purchase failed. Please try again later."));
+    }
+
+    static ResponseEntity<ApiResponse<Map<String, Object>>> accepted(PurchaseRequest request, PurchaseResult result,
+                                                                     long remainingTickets) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("orderId", result.getOrderId());
+        response.put("orderStatus", result.getOrderStatus());
+        response.put("userId", request.getUserId());
+        response.put("quantityPurchased", request.getQuantity());
+        response.put("remainingTickets", remainingTickets);
+
+        if (result.getOrderStatus() == OrderStatus.PENDING) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(ApiResponse.success("Purchase accepted. Order is being processed.", response));
+        }
+
+        return ResponseEntity.ok(ApiResponse.success("Purchase successful", response));
+    }
+
+    static ResponseEntity<ApiResponse<Map<String, Object>>> replay(IdempotentResponse stored) {
+        return ResponseEntity.status(stored.getHttpStatus())
+                .header("Idempotent-Replayed", "true")
+                .body(stored.getBody());
+    }
+
+    static ResponseEntity<ApiResponse<Map<String, Object>>> idempotencyKeyInProgress() {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error("A request with this idempotency key is still being processed"));
+    }
+
+    static ResponseEntity<ApiResponse<Map<String, Object>>> idempotencyKeyReused() {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(ApiResponse.error("Idempotency key was already used for a different request"));
+    }
+
+    static ResponseEntity<ApiResponse<Map<String, Object>>> notEnoughTickets() {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error("Not enough tickets available for purchase"));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.flashsale.controller;
+
+import com.example.flashsale.model.dto.ApiResponse;
+import com.example.flashsale.model.dto.PurchaseRequest;
+import com.example.flashsale.service.ReactivePurchaseService;
+import com.example.flashsale.service.SaleService;
+import com.example.flashsale.service.TicketService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Non-blocking purchase endpoint. Returning a {@link Mono} lets Spring MVC release the
+ * request thread while the purchase waits on Redis, so an in-flight purchase only
+ * holds a connection, not a thread.
+ */
+@RestController
+@RequestMapping("/api/v2")
+@RequiredArgsConstructor
+@Slf4j
+public class ReactivePurchaseController {
+
+    private final ReactivePurchaseService reactivePurchaseService;
+    private final TicketService ticketService;
+    private final SaleService saleService;
+
+    @PostMapping("/purchases")
+    public Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> purchaseTickets(
+            @Valid @RequestBody PurchaseRequest request) {
+        log.info("Reactive purchase request received from user: {}, quantity: {}",
+                request.getUserId(), request.getQuantity());
+        return purchase(saleService.getDefaultSaleId(), request);
+    }
+
+    @PostMapping("/sales/{saleId}/purchases")
+    public Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> purchaseSaleTickets(
+            @PathVariable long saleId, @Valid @RequestBody PurchaseRequest request) {
+        log.info("Reactive purchase request received for sale: {} from user: {}, quantity: {}",
+                saleId, request.getUserId(), request.getQuantity());
+
+        saleService.getSale(saleId);
+        return purchase(saleId, request);
+    }
+
+    private Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> purchase(long saleId, PurchaseRequest request) {
+        return reactivePurchaseService.purchaseTickets(saleId, request)
+                .flatMap(result -> PurchaseResponses.isAccepted(result)
+                        ? ticketService.getAvailableTicketsCountReactive(saleId)
+                                .map(remaining -> PurchaseResponses.accepted(request, result, remaining))
+                        : Mono.just(PurchaseResponses.rejected(request, result)));
+    }
+}
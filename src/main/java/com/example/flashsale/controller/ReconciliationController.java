@@ -0,0 +1,27 @@
+package com.example.flashsale.controller;
+
+import com.example.flashsale.model.dto.ApiResponse;
+import com.example.flashsale.model.dto.ReconciliationReport;
+import com.example.flashsale.service.ReconciliationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/reconciliation")
+@RequiredArgsConstructor
+@Slf4j
+public class ReconciliationController {
+
+    private final ReconciliationService reconciliationService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<ReconciliationReport>> reconcile() {
+        log.info("Manual inventory reconciliation requested");
+        ReconciliationReport report = reconciliationService.reconcile();
+        return ResponseEntity.ok(ApiResponse.success("Reconciliation completed", report));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.flashsale.controller;
+
+import com.example.flashsale.exception.TooManyRequestsException;
+import com.example.flashsale.model.Sale;
+import com.example.flashsale.model.dto.ApiResponse;
+import com.example.flashsale.model.dto.CreateSaleRequest;
+import com.example.flashsale.model.dto.PurchaseRequest;
+import com.example.flashsale.service.PurchaseService;
+import com.example.flashsale.service.SaleService;
+import com.example.flashsale.service.StockFeedService;
+import com.example.flashsale.service.TicketService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/sales")
+@RequiredArgsConstructor
+@Slf4j
+public class SaleController {
+
+    private static final long STREAM_RETRY_AFTER_SECONDS = 5;
+
+    private final SaleService saleService;
+    private final PurchaseService purchaseService;
+    private final TicketService ticketService;
+    private final PurchaseHandler purchaseHandler;
+    private final StockFeedService stockFeedService;
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<Sale>>> getAllSales() {
+        log.info("Fetching all sales");
+        return ResponseEntity.ok(ApiResponse.success(saleService.getAllSales()));
+    }
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<Sale>> createSale(@Valid @RequestBody CreateSaleRequest request) {
+        log.info("Creating sale for sku: {} with {} tickets", request.getSku(), request.getTotalTickets());
+
+        return saleService.createSale(request)
+                .map(sale -> ResponseEntity.status(HttpStatus.CREATED)
+                        .body(ApiResponse.success("Sale created successfully", sale)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(ApiResponse.error("Sale already exists with sku: " + request.getSku())));
+    }
+
+    @GetMapping("/{saleId}")
+    public ResponseEntity<ApiResponse<Sale>> getSale(@PathVariable long saleId) {
+        log.info("Fetching sale: {}", saleId);
+        return ResponseEntity.ok(ApiResponse.success(saleService.getSale(saleId)));
+    }
+
+    @GetMapping("/{saleId}/status")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getSaleStatus(@PathVariable long saleId) {
+        log.info("Fetching status for sale: {}", saleId);
+        Sale sale = saleService.getSale(saleId);
+        long availableCount = ticketService.getAvailableTicketsCount(saleId);
+
+        Map<String, Object> status = new HashMap<>();
+        status.put("saleId", saleId);
+        status.put("sku", sale.getSku());
+        status.put("totalTickets", sale.getTotalTickets());
+        status.put("availableTickets", availableCount);
+        status.put("soldOut", availableCount == 0);
+
+        return ResponseEntity.ok(ApiResponse.success(status));
+    }
+
+    @GetMapping(value = "/{saleId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSaleStatus(@PathVariable long saleId) {
+        log.debug("Opening stock feed for sale: {}", saleId);
+        saleService.getSale(saleId);
+        return stockFeedService.subscribe(saleId)
+                .orElseThrow(() -> new TooManyRequestsException("Stock feed is full, poll /status instead",
+                        STREAM_RETRY_AFTER_SECONDS));
+    }
+
+    @PostMapping("/{saleId}/purchases")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> purchaseTickets(
+            @PathVariable long saleId,
+            @Valid @RequestBody PurchaseRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKeyHeader) {
+        log.info("Purchase request received for sale: {} from user: {}, quantity: {}",
+                saleId, request.getUserId(), request.getQuantity());
+
+        saleService.getSale(saleId);
+        return purchaseHandler.purchase(saleId, request, idempotencyKeyHeader);
+    }
+
+    @GetMapping("/{saleId}/purchases/user/{userId}/count")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getUserPurchaseCount(@PathVariable long saleId,
+                                                                                @PathVariable String userId) {
+        log.info("Fetching purchase count of sale: {} for user: {}", saleId, userId);
+        saleService.getSale(saleId);
+        long count = purchaseService.countUserPurchases(saleId, userId);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("saleId", saleId);
+        response.put("userId", userId);
+        response.put("purchaseCount", count);
+
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+}
@@ -1,14 +1,21 @@
 package com.example.flashsale.controller;
 
-import com.example.flashsale.model.Ticket;
+import com.example.flashsale.exception.TooManyRequestsException;
 import com.example.flashsale.model.dto.ApiResponse;
+import com.example.flashsale.model.dto.TicketView;
+import com.example.flashsale.service.SaleService;
+import com.example.flashsale.service.StockFeedService;
 import com.example.flashsale.service.TicketService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
 import java.util.List;
@@ -20,26 +27,48 @@ import java.util.Map;
 @Slf4j
 public class TicketController {
 
+    private static final String DEFAULT_PAGE_SIZE = "100";
+    private static final long STREAM_RETRY_AFTER_SECONDS = 5;
+
     private final TicketService ticketService;
+    private final SaleService saleService;
+    private final StockFeedService stockFeedService;
 
     @GetMapping
-    public ResponseEntity<ApiResponse<List<Ticket>>> getAllTickets() {
-        log.info("Fetching all tickets");
-        List<Ticket> tickets = ticketService.getAllTickets();
-        return ResponseEntity.ok(ApiResponse.success(tickets));
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getAllTickets(
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+        log.info("Fetching tickets after: {}, limit: {}", after, limit);
+        return ResponseEntity.ok(ApiResponse.success(page(ticketService.getTickets(after, limit, false))));
     }
 
     @GetMapping("/available")
-    public ResponseEntity<ApiResponse<List<Ticket>>> getAvailableTickets() {
-        log.info("Fetching available tickets");
-        List<Ticket> availableTickets = ticketService.getAvailableTickets();
-        return ResponseEntity.ok(ApiResponse.success(availableTickets));
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getAvailableTickets(
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) int limit) {
+        log.info("Fetching available tickets after: {}, limit: {}", after, limit);
+        return ResponseEntity.ok(ApiResponse.success(page(ticketService.getTickets(after, limit, true))));
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportTickets(
+            @RequestParam(defaultValue = "false") boolean available) {
+        log.info("Exporting {} tickets", available ? "available" : "all");
+        StreamingResponseBody body = out -> ticketService.exportTickets(available, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/status")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> getTicketStatus() {
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getTicketStatus(
+            @RequestParam(defaultValue = "false") boolean fresh) {
         log.info("Fetching ticket status");
-        long availableCount = ticketService.getAvailableTicketsCount();
+        // A fresh read skips the shared snapshot and the sold-out flag, for callers that need the exact count
+        long saleId = saleService.getDefaultSaleId();
+        long availableCount = fresh
+                ? ticketService.readAvailableTickets(saleId)
+                : ticketService.getAvailableTicketsCount(saleId);
 
         Map<String, Object> status = new HashMap<>();
         status.put("availableTickets", availableCount);
@@ -47,4 +76,20 @@ public class TicketController {
 
         return ResponseEntity.ok(ApiResponse.success(status));
     }
-}
\ No newline at end of file
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTicketStatus() {
+        log.debug("Opening stock feed");
+        return stockFeedService.subscribe(saleService.getDefaultSaleId())
+                .orElseThrow(() -> new TooManyRequestsException("Stock feed is full, poll /status instead",
+                        STREAM_RETRY_AFTER_SECONDS));
+    }
+
+    private Map<String, Object> page(List<TicketView> tickets) {
+        Map<String, Object> page = new HashMap<>();
+        page.put("tickets", tickets);
+        // Pass as ?after= to fetch the next page; an empty page marks the end
+        page.put("nextAfter", tickets.isEmpty() ? null : tickets.get(tickets.size() - 1).getId());
+        return page;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.flashsale.controller;
+
+import com.example.flashsale.model.dto.ApiResponse;
+import com.example.flashsale.model.dto.WaitingRoomStatus;
+import com.example.flashsale.model.dto.WaitingRoomTicket;
+import com.example.flashsale.service.WaitingRoomService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/waiting-room")
+@RequiredArgsConstructor
+@Slf4j
+public class WaitingRoomController {
+
+    private final WaitingRoomService waitingRoomService;
+
+    @PostMapping("/join")
+    public ResponseEntity<ApiResponse<WaitingRoomTicket>> join(@RequestParam String userId) {
+        if (!waitingRoomService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error("Waiting room is not enabled"));
+        }
+
+        WaitingRoomTicket ticket = waitingRoomService.join(userId);
+        log.info("User {} joined the waiting room at position {}", userId, ticket.getPosition());
+        return ResponseEntity.ok(ApiResponse.success(ticket));
+    }
+
+    @GetMapping("/position")
+    public ResponseEntity<ApiResponse<WaitingRoomStatus>> getPosition(@RequestParam String token) {
+        // Answered from the signed token and the node's watermark, without touching Redis;
+        // the watermark only moves once per tick, so clients and proxies may cache until then
+        return waitingRoomService.getStatus(token)
+                .map(status -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.maxAge(
+                                Math.max(1, TimeUnit.MILLISECONDS.toSeconds(waitingRoomService.getTickIntervalMs())),
+                                TimeUnit.SECONDS).cachePrivate())
+                        .body(ApiResponse.success(status)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(ApiResponse.error("Invalid waiting room token")));
+    }
+}
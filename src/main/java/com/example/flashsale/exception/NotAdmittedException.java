@@ -0,0 +1,12 @@
+package com.example.flashsale.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.FORBIDDEN)
+public class NotAdmittedException extends RuntimeException {
+
+    public NotAdmittedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.flashsale.filter;
+
+import com.example.flashsale.metrics.PurchaseMetrics;
+import com.example.flashsale.model.dto.ApiResponse;
+import com.example.flashsale.util.TokenBucket;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * First admission layer for purchase requests: a node-local token bucket caps the rate
+ * at which this node lets purchases through. Excess requests are answered with 429
+ * and a Retry-After header before the body is read or any Redis or database work is
+ * done. The per-user limit is applied once the body is parsed, see
+ * {@link PerUserAdmissionAdvice}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+@Slf4j
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final ObjectMapper objectMapper;
+    private final PurchaseMetrics purchaseMetrics;
+
+    @Value("${flash-sale.admission.enabled}")
+    private boolean enabled;
+
+    @Value("${flash-sale.admission.global.rate-per-second}")
+    private double ratePerSecond;
+
+    @Value("${flash-sale.admission.global.burst}")
+    private int burst;
+
+    private TokenBucket globalBucket;
+
+    @PostConstruct
+    public void init() {
+        globalBucket = new TokenBucket(ratePerSecond, burst);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled
+                || !HttpMethod.POST.matches(request.getMethod())
+                || !isPurchasePath(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long waitNanos = globalBucket.tryAcquire();
+        if (waitNanos > 0) {
+            purchaseMetrics.countAdmissionRejection("global");
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds(waitNanos)));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(),
+                    ApiResponse.error("Too many purchase requests. Please retry later."));
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private boolean isPurchasePath(String uri) {
+        // Covers the default-sale and the sale-scoped purchase endpoints of both API versions,
+        // and placing holds, which takes stock the same way
+        return uri.startsWith("/api/") && (uri.endsWith("/purchases") || uri.endsWith("/holds"));
+    }
+}
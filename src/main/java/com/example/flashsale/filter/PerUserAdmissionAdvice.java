@@ -0,0 +1,54 @@
+package com.example.flashsale.filter;
+
+import com.example.flashsale.exception.TooManyRequestsException;
+import com.example.flashsale.metrics.PurchaseMetrics;
+import com.example.flashsale.model.dto.PurchaseRequest;
+import com.example.flashsale.service.impl.PerUserRateLimiter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Second admission layer: applies the per-user rate limit as soon as a purchase body
+ * has been parsed, before validation and before the controller runs, so one
+ * aggressive user cannot take the capacity meant for many buyers.
+ */
+@ControllerAdvice
+@RequiredArgsConstructor
+public class PerUserAdmissionAdvice extends RequestBodyAdviceAdapter {
+
+    private final PerUserRateLimiter perUserRateLimiter;
+    private final PurchaseMetrics purchaseMetrics;
+
+    @Value("${flash-sale.admission.enabled}")
+    private boolean enabled;
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return enabled && PurchaseRequest.class.equals(targetType);
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+                                Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+        String userId = ((PurchaseRequest) body).getUserId();
+        if (userId == null) {
+            return body;
+        }
+
+        long waitNanos = perUserRateLimiter.tryAcquire(userId);
+        if (waitNanos > 0) {
+            purchaseMetrics.countAdmissionRejection("per_user");
+            throw new TooManyRequestsException("Too many purchase requests for user: " + userId,
+                    AdmissionControlFilter.retryAfterSeconds(waitNanos));
+        }
+        return body;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.flashsale.filter;
+
+import com.example.flashsale.exception.NotAdmittedException;
+import com.example.flashsale.model.dto.PurchaseRequest;
+import com.example.flashsale.service.SaleService;
+import com.example.flashsale.service.WaitingRoomService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/**
+ * When the waiting room is enabled, only buyers whose queue position has been admitted
+ * may purchase. The token is checked locally, so rejected requests cost no I/O.
+ *
+ * Admission is paced by the default sale's throughput and ends when that sale sells out,
+ * so only purchases and holds of the default sale are gated; other sales are not queued.
+ */
+@ControllerAdvice
+@RequiredArgsConstructor
+public class WaitingRoomAdvice extends RequestBodyAdviceAdapter {
+
+    public static final String TOKEN_HEADER = "X-Waiting-Room-Token";
+
+    private final WaitingRoomService waitingRoomService;
+    private final SaleService saleService;
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return waitingRoomService.isEnabled() && PurchaseRequest.class.equals(targetType);
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+                                Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+        if (!forDefaultSale()) {
+            return body;
+        }
+
+        String token = inputMessage.getHeaders().getFirst(TOKEN_HEADER);
+        if (!waitingRoomService.isAdmitted(token, ((PurchaseRequest) body).getUserId())) {
+            throw new NotAdmittedException("Not admitted from the waiting room yet. Check /api/waiting-room/position");
+        }
+        return body;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean forDefaultSale() {
+        // Sale-scoped endpoints name the sale in the path; the unscoped ones buy from the default sale
+        Map<String, String> pathVariables = (Map<String, String>) RequestContextHolder.currentRequestAttributes()
+                .getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        String saleId = pathVariables != null ? pathVariables.get("saleId") : null;
+        return saleId == null || String.valueOf(saleService.getDefaultSaleId()).equals(saleId);
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.flashsale.metrics;
+
+import com.example.flashsale.model.ReservationStatus;
+import com.example.flashsale.model.dto.PurchaseResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Timers and counters for each stage of the purchase pipeline, tagged by outcome.
+ * Timers publish percentile histograms (bucketed, so cheap to record and aggregatable
+ * across nodes) and are exported through /actuator/prometheus.
+ */
+@Component
+@RequiredArgsConstructor
+public class PurchaseMetrics {
+
+    public static final String STAGE_USER_LOOKUP = "user_lookup";
+    public static final String STAGE_STOCK_CHECK = "stock_check";
+    public static final String STAGE_RESERVE = "reserve";
+    public static final String STAGE_COMMIT_QUEUE = "commit_queue";
+    public static final String STAGE_DB_LOOKUP = "db_lookup";
+    public static final String STAGE_TICKET_CLAIM = "ticket_claim";
+    public static final String STAGE_INSERT = "insert";
+    public static final String STAGE_COMMIT = "commit";
+    public static final String STAGE_RELEASE = "release";
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_ERROR = "error";
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final LongAdder completedPurchases = new LongAdder();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> admissionRejections = new ConcurrentHashMap<>();
+    private DistributionSummary batchSizes;
+
+    @PostConstruct
+    public void register() {
+        Gauge.builder("flashsale.purchase.in_flight", inFlight, AtomicInteger::get)
+                .description("Purchases currently being processed")
+                .register(meterRegistry);
+
+        batchSizes = DistributionSummary.builder("flashsale.purchase.commit_batch_size")
+                .description("Orders written per database transaction")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(1024.0)
+                .register(meterRegistry);
+    }
+
+    public long startPurchase() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Ends a purchase started with {@link #startPurchase()}. A null result means the
+     * purchase ended with an exception.
+     */
+    public void endPurchase(long startNanos, PurchaseResult result) {
+        inFlight.decrementAndGet();
+        completedPurchases.increment();
+        timer("flashsale.purchase", "total", outcome(result)).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Purchases this node has finished processing, whatever their outcome.
+     */
+    public long getCompletedPurchases() {
+        return completedPurchases.sum();
+    }
+
+    public void recordStage(String stage, String outcome, long startNanos) {
+        timer("flashsale.purchase.stage", stage, outcome).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public <T> T timeStage(String stage, Supplier<T> action) {
+        long start = System.nanoTime();
+        String outcome = OUTCOME_ERROR;
+        try {
+            T result = action.get();
+            outcome = OUTCOME_SUCCESS;
+            return result;
+        } finally {
+            recordStage(stage, outcome, start);
+        }
+    }
+
+    public void countTickets(String outcome, int tickets) {
+        counters.computeIfAbsent(outcome, key -> Counter.builder("flashsale.purchase.tickets")
+                        .description("Tickets moved through the purchase pipeline")
+                        .tag("outcome", key)
+                        .register(meterRegistry))
+                .increment(tickets);
+    }
+
+    public void countAdmissionRejection(String layer) {
+        admissionRejections.computeIfAbsent(layer, key -> Counter.builder("flashsale.admission.rejected")
+                        .description("Purchase requests rejected by admission control")
+                        .tag("layer", key)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    public void recordBatchSize(int orders) {
+        batchSizes.record(orders);
+    }
+
+    public static String outcome(ReservationStatus status) {
+        return status.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static String outcome(PurchaseResult result) {
+        if (result == null) {
+            return OUTCOME_ERROR;
+        }
+        if (result.getReservationStatus() != ReservationStatus.OK) {
+            return outcome(result.getReservationStatus());
+        }
+        return result.getOrderStatus().name().toLowerCase(Locale.ROOT);
+    }
+
+    private Timer timer(String name, String stage, String outcome) {
+        return timers.computeIfAbsent(name + '|' + stage + '|' + outcome, key -> Timer.builder(name)
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMicros(50))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry));
+    }
+}
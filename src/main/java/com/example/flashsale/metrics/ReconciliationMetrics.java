@@ -0,0 +1,64 @@
+package com.example.flashsale.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of the inventory reconciler: orders it settled or released, and per sale the
+ * reservations in flight and the gap between unsold tickets in the database and stock
+ * in Redis, as of the last sweep.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReconciliationMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Counter> orders = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> inFlight = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> stockDrift = new ConcurrentHashMap<>();
+
+    public void countOrders(String result, long count) {
+        if (count > 0) {
+            orders.computeIfAbsent(result, key -> Counter.builder("flashsale.reconciler.orders")
+                            .description("Stale reservations handled by the reconciler")
+                            .tag("result", key)
+                            .register(meterRegistry))
+                    .increment(count);
+        }
+    }
+
+    public void recordSale(long saleId, long inFlightOrders, long drift) {
+        gauge(inFlight, saleId, "flashsale.reconciler.in_flight",
+                "Reservations not yet committed to the database").set(inFlightOrders);
+        gauge(stockDrift, saleId, "flashsale.reconciler.stock_drift",
+                "Unsold tickets in the database minus stock in Redis").set(drift);
+    }
+
+    public void recordSweep(long startNanos) {
+        Timer.builder("flashsale.reconciler.sweep")
+                .description("Duration of a reconciliation sweep")
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private AtomicLong gauge(Map<Long, AtomicLong> values, long saleId, String name, String description) {
+        return values.computeIfAbsent(saleId, id -> {
+            AtomicLong value = new AtomicLong();
+            Gauge.builder(name, value, AtomicLong::get)
+                    .description(description)
+                    .tag("sale", String.valueOf(id))
+                    .register(meterRegistry);
+            return value;
+        });
+    }
+}
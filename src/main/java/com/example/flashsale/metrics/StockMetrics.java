@@ -0,0 +1,38 @@
+package com.example.flashsale.metrics;
+
+import com.example.flashsale.repository.TicketRepository;
+import com.example.flashsale.service.SaleService;
+import com.example.flashsale.service.TicketService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stock gauges, read when metrics are scraped: what Redis will still sell and what the
+ * database still has unsold in the default sale. The two converge once every accepted
+ * order is persisted. The Redis gauge reads the counters directly, so a scrape never
+ * raises or clears the sold-out flag and is not answered from a stale snapshot.
+ */
+@Component
+@RequiredArgsConstructor
+public class StockMetrics implements MeterBinder {
+
+    private final TicketService ticketService;
+    private final TicketRepository ticketRepository;
+    private final SaleService saleService;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("flashsale.stock.redis", ticketService,
+                        service -> service.readAvailableTickets(saleService.getDefaultSaleId()))
+                .description("Tickets still available in Redis")
+                .register(registry);
+
+        Gauge.builder("flashsale.stock.db_available", ticketRepository,
+                        repository -> repository.countAvailableTicketsBySaleId(saleService.getDefaultSaleId()))
+                .description("Unsold tickets in the database")
+                .register(registry);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.flashsale.model;
+
+public enum OrderStatus {
+
+    HELD,
+    PENDING,
+    // Claimed by the request writing it to the database; until its commit deadline passes only that
+    // request settles or releases it
+    COMMITTING,
+    COMPLETED,
+    FAILED
+}
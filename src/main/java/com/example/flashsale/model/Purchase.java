@@ -1,11 +1,14 @@
 package com.example.flashsale.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -16,7 +19,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "purchases")
+@Table(name = "purchases", indexes = {
+        @Index(name = "idx_purchases_transaction_id", columnList = "transaction_id"),
+        @Index(name = "idx_purchases_sale_id", columnList = "sale_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -24,7 +30,8 @@ import java.time.LocalDateTime;
 public class Purchase {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "purchase_seq")
+    @SequenceGenerator(name = "purchase_seq", sequenceName = "purchases_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -35,6 +42,9 @@ public class Purchase {
     @JoinColumn(name = "ticket_id")
     private Ticket ticket;
 
+    @Column(name = "sale_id")
+    private Long saleId;
+
     private String transactionId;
     private BigDecimal amount;
     private LocalDateTime purchaseTime;
@@ -0,0 +1,27 @@
+package com.example.flashsale.model;
+
+/**
+ * Outcome of an atomic stock reservation in Redis. The codes match the values
+ * returned by the reservation Lua script.
+ */
+public enum ReservationStatus {
+
+    OK(0),
+    SOLD_OUT(1),
+    USER_LIMIT(2);
+
+    private final long code;
+
+    ReservationStatus(long code) {
+        this.code = code;
+    }
+
+    public static ReservationStatus fromCode(long code) {
+        for (ReservationStatus status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown reservation status code: " + code);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.flashsale.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A single drop of one SKU. Each sale has its own inventory, price and Redis keys, so
+ * concurrent sales do not contend on the same stock counter or ticket rows.
+ */
+@Entity
+@Table(name = "sales")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Sale {
+
+    public static final String DEFAULT_SKU = "default";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sale_seq")
+    @SequenceGenerator(name = "sale_seq", sequenceName = "sales_seq", allocationSize = 1)
+    private Long id;
+
+    @Column(unique = true, nullable = false)
+    private String sku;
+
+    private String name;
+    private BigDecimal price;
+    private int totalTickets;
+    // Set once every generated ticket of the sale has been written; until then startup resumes the generation
+    private boolean provisioned;
+    private LocalDateTime createdAt;
+}
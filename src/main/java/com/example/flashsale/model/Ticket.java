@@ -1,9 +1,12 @@
 package com.example.flashsale.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -14,20 +17,34 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "tickets")
+@Table(name = "tickets", indexes = {
+        @Index(name = "idx_tickets_sale_id_sold", columnList = "sale_id, sold")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Ticket {
 
+    // IDs handed out per sequence call; bulk inserts allocate from the same sequence in these blocks
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ticket_seq")
+    @SequenceGenerator(name = "ticket_seq", sequenceName = "tickets_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
+    @Column(name = "sale_id")
+    private Long saleId;
+
     private String ticketNumber;
     private BigDecimal price;
     private boolean reserved;
+
+    // The hold that set the reserved flag, so only that hold clears it
+    @Column(name = "hold_id")
+    private String holdId;
+
     private boolean sold;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
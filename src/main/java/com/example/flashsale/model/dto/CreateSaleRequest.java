@@ -0,0 +1,34 @@
+package com.example.flashsale.model.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CreateSaleRequest {
+
+    @NotBlank(message = "SKU is required")
+    @Size(max = 64, message = "SKU must be at most 64 characters")
+    private String sku;
+
+    private String name;
+
+    @NotNull(message = "Price is required")
+    @DecimalMin(value = "0.00", message = "Price must not be negative")
+    private BigDecimal price;
+
+    @NotNull(message = "Total tickets is required")
+    @Positive(message = "Total tickets must be a positive number")
+    private Integer totalTickets;
+}
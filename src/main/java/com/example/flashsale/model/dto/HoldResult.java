@@ -0,0 +1,35 @@
+package com.example.flashsale.model.dto;
+
+import com.example.flashsale.model.ReservationStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HoldResult {
+
+    private String holdId;
+    private long saleId;
+    private ReservationStatus reservationStatus;
+    private List<Long> ticketIds;
+    private LocalDateTime expiresAt;
+
+    public boolean isHeld() {
+        return reservationStatus == ReservationStatus.OK;
+    }
+
+    public static HoldResult rejected(long saleId, ReservationStatus reservationStatus) {
+        return HoldResult.builder()
+                .saleId(saleId)
+                .reservationStatus(reservationStatus)
+                .ticketIds(List.of())
+                .build();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.flashsale.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Outcome stored under an idempotency key. While the first request is still running
+ * the record only marks the key as in progress; afterwards it holds the response that
+ * duplicates are answered with.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotentResponse {
+
+    private boolean completed;
+    private long saleId;
+    private int quantity;
+    private int httpStatus;
+    private ApiResponse<Map<String, Object>> body;
+
+    public static IdempotentResponse inProgress(long saleId, int quantity) {
+        return IdempotentResponse.builder()
+                .completed(false)
+                .saleId(saleId)
+                .quantity(quantity)
+                .build();
+    }
+
+    public static IdempotentResponse completed(long saleId, int quantity, int httpStatus,
+                                               ApiResponse<Map<String, Object>> body) {
+        return IdempotentResponse.builder()
+                .completed(true)
+                .saleId(saleId)
+                .quantity(quantity)
+                .httpStatus(httpStatus)
+                .body(body)
+                .build();
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.flashsale.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PendingOrder {
+
+    private String orderId;
+    private long saleId;
+    private String userId;
+    private int quantity;
+    private List<Long> ticketIds;
+}
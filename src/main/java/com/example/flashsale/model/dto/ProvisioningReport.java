@@ -0,0 +1,25 @@
+package com.example.flashsale.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProvisioningReport {
+
+    private String jobId;
+    private long saleId;
+    private String source;
+
+    // RUNNING, COMPLETED or FAILED
+    private String status;
+
+    private long ticketsLoaded;
+    private long elapsedMs;
+    private long ticketsPerSecond;
+    private String error;
+}
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -24,4 +25,8 @@ public class PurchaseRequest {
     @Max(value = 1, message = "Quantity must be at most 1")
     @Positive(message = "Quantity must be a positive number")
     private Integer quantity;
+
+    // Optional client-generated key; the Idempotency-Key header takes precedence
+    @Size(max = 128, message = "Idempotency key must be at most 128 characters")
+    private String idempotencyKey;
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.example.flashsale.model.dto;
+
+import com.example.flashsale.model.OrderStatus;
+import com.example.flashsale.model.ReservationStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PurchaseResult {
+
+    private String orderId;
+    private ReservationStatus reservationStatus;
+    private OrderStatus orderStatus;
+
+    public static PurchaseResult completed(String orderId) {
+        return new PurchaseResult(orderId, ReservationStatus.OK, OrderStatus.COMPLETED);
+    }
+
+    public static PurchaseResult pending(String orderId) {
+        return new PurchaseResult(orderId, ReservationStatus.OK, OrderStatus.PENDING);
+    }
+
+    public static PurchaseResult failed(String orderId) {
+        return new PurchaseResult(orderId, ReservationStatus.OK, OrderStatus.FAILED);
+    }
+
+    public static PurchaseResult rejected(ReservationStatus reservationStatus) {
+        return new PurchaseResult(null, reservationStatus, null);
+    }
+}
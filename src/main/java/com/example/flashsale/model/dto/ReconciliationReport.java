@@ -0,0 +1,27 @@
+package com.example.flashsale.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReconciliationReport {
+
+    // Stale reservations whose order had been committed
+    private long settled;
+
+    // Stale reservations without an order, whose tickets went back to stock
+    private long released;
+
+    // Reservations still in flight per sale after the sweep
+    private Map<Long, Long> inFlight;
+
+    // Unsold tickets in the database minus stock in Redis per sale
+    private Map<Long, Long> stockDrift;
+}
@@ -0,0 +1,29 @@
+package com.example.flashsale.model.dto;
+
+import com.example.flashsale.model.ReservationStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReservationResult {
+
+    private ReservationStatus status;
+    private List<Long> ticketIds;
+    // Already claimed for its database write (COMMITTING), as orders sold from a stock lease are
+    private boolean committing;
+
+    public ReservationResult(ReservationStatus status, List<Long> ticketIds) {
+        this(status, ticketIds, false);
+    }
+
+    public boolean isReserved() {
+        return status == ReservationStatus.OK;
+    }
+}
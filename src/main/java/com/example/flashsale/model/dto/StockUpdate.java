@@ -0,0 +1,17 @@
+package com.example.flashsale.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockUpdate {
+
+    private long saleId;
+    private long availableTickets;
+    private boolean soldOut;
+}
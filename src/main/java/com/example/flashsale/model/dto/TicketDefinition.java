@@ -0,0 +1,22 @@
+package com.example.flashsale.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * One ticket to provision. Both fields are optional: a missing ticket number is derived
+ * from the ticket ID and a missing price falls back to the sale's price.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TicketDefinition {
+
+    private String ticketNumber;
+    private BigDecimal price;
+}
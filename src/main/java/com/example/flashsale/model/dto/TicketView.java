@@ -0,0 +1,25 @@
+package com.example.flashsale.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Read-only projection of a ticket for listings. Selected directly by the query, so
+ * listing tickets never loads entities into the persistence context.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TicketView {
+
+    private Long id;
+    private Long saleId;
+    private String ticketNumber;
+    private BigDecimal price;
+    private boolean sold;
+}
@@ -0,0 +1,17 @@
+package com.example.flashsale.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of tickets one user has bought in a sale, as counted from the purchases.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserTicketCount {
+
+    private String userId;
+    private long tickets;
+}
@@ -0,0 +1,19 @@
+package com.example.flashsale.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WaitingRoomStatus {
+
+    private long position;
+    private long admittedUpTo;
+    private boolean admitted;
+    private long estimatedWaitSeconds;
+    private boolean soldOut;
+}
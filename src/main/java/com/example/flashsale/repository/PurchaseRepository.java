@@ -2,10 +2,12 @@ package com.example.flashsale.repository;
 
 import com.example.flashsale.model.Purchase;
 import com.example.flashsale.model.User;
+import com.example.flashsale.model.dto.UserTicketCount;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,6 +15,12 @@ public interface PurchaseRepository extends JpaRepository<Purchase, Long> {
 
     List<Purchase> findByUser(User user);
 
-    @Query("SELECT COUNT(p) FROM Purchase p WHERE p.user.userId = :userId")
-    long countPurchasesByUserId(String userId);
-}
\ No newline at end of file
+    boolean existsByTransactionId(String transactionId);
+
+    @Query("SELECT p.transactionId FROM Purchase p WHERE p.transactionId IN :transactionIds")
+    List<String> findExistingTransactionIds(Collection<String> transactionIds);
+
+    @Query("SELECT new com.example.flashsale.model.dto.UserTicketCount(p.user.userId, COUNT(p)) "
+            + "FROM Purchase p WHERE p.saleId = :saleId GROUP BY p.user.userId")
+    List<UserTicketCount> countTicketsByUser(Long saleId);
+}
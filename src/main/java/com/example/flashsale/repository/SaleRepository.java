@@ -0,0 +1,25 @@
+package com.example.flashsale.repository;
+
+import com.example.flashsale.model.Sale;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface SaleRepository extends JpaRepository<Sale, Long> {
+
+    Optional<Sale> findBySku(String sku);
+
+    @Modifying
+    @Query("UPDATE Sale s SET s.totalTickets = s.totalTickets + :count WHERE s.id = :saleId")
+    int addTickets(Long saleId, int count);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Sale s SET s.provisioned = true WHERE s.id = :saleId")
+    int markProvisioned(Long saleId);
+}
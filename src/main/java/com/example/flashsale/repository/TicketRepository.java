@@ -1,20 +1,72 @@
 package com.example.flashsale.repository;
 
 import com.example.flashsale.model.Ticket;
+import com.example.flashsale.model.dto.TicketView;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface TicketRepository extends JpaRepository<Ticket, Long> {
 
-    List<Ticket> findBySold(boolean sold);
+    // Keyset pagination: seeks past the last ID of the previous page instead of counting an offset
+    @Query("SELECT new com.example.flashsale.model.dto.TicketView(t.id, t.saleId, t.ticketNumber, t.price, t.sold) "
+            + "FROM Ticket t WHERE t.id > :after AND (:sold IS NULL OR t.sold = :sold) ORDER BY t.id")
+    List<TicketView> findPageAfter(long after, Boolean sold, Limit limit);
+
+    // Rows are pulled from the cursor in chunks as the stream is consumed
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.example.flashsale.model.dto.TicketView(t.id, t.saleId, t.ticketNumber, t.price, t.sold) "
+            + "FROM Ticket t WHERE :sold IS NULL OR t.sold = :sold ORDER BY t.id")
+    Stream<TicketView> streamAll(Boolean sold);
+
+    @Query("SELECT t.id FROM Ticket t WHERE t.saleId = :saleId AND t.sold = false ORDER BY t.id")
+    List<Long> findUnsoldTicketIds(Long saleId);
+
+    long countBySaleId(Long saleId);
+
+    @Modifying
+    @Query("UPDATE Ticket t SET t.sold = true, t.reserved = false, t.holdId = null, t.updatedAt = :updatedAt "
+            + "WHERE t.id IN :ids AND t.sold = false")
+    int markSold(Collection<Long> ids, LocalDateTime updatedAt);
+
+    // Held tickets are flagged so the database tells them apart from tickets still on sale
+    @Transactional
+    @Modifying
+    @Query("UPDATE Ticket t SET t.reserved = true, t.holdId = :holdId, t.updatedAt = :updatedAt "
+            + "WHERE t.id IN :ids AND t.sold = false")
+    int markHeld(Collection<Long> ids, String holdId, LocalDateTime updatedAt);
+
+    // Only clears the flag the given hold set, so a released hold cannot unflag tickets a newer hold
+    // took in the meantime
+    @Transactional
+    @Modifying
+    @Query("UPDATE Ticket t SET t.reserved = false, t.holdId = null, t.updatedAt = :updatedAt "
+            + "WHERE t.id IN :ids AND t.holdId = :holdId")
+    int clearHold(Collection<Long> ids, String holdId, LocalDateTime updatedAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Ticket t SET t.reserved = false, t.holdId = null WHERE t.saleId = :saleId AND t.reserved = true")
+    int clearReserved(Long saleId);
 
     @Query("SELECT COUNT(t) FROM Ticket t WHERE t.sold = true")
     long countSoldTickets();
 
     @Query("SELECT COUNT(t) FROM Ticket t WHERE t.sold = false")
     long countAvailableTickets();
+
+    @Query("SELECT COUNT(t) FROM Ticket t WHERE t.saleId = :saleId AND t.sold = false AND t.reserved = false")
+    long countAvailableTicketsBySaleId(Long saleId);
 }
\ No newline at end of file
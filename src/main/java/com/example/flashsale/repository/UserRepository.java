@@ -4,6 +4,8 @@ import com.example.flashsale.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +14,6 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUserId(String userId);
 
     boolean existsByUserId(String userId);
+
+    List<User> findByUserIdIn(Collection<String> userIds);
 }
\ No newline at end of file
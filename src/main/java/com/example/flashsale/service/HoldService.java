@@ -0,0 +1,20 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.model.dto.HoldResult;
+import com.example.flashsale.model.dto.PurchaseResult;
+
+import java.util.Optional;
+
+public interface HoldService {
+
+    HoldResult hold(long saleId, String userId, int quantity);
+
+    /**
+     * Completes the purchase of a held order, or returns empty if the hold expired or was cancelled.
+     */
+    Optional<PurchaseResult> confirm(long saleId, String holdId, String userId);
+
+    boolean cancel(long saleId, String holdId, String userId);
+
+    int expireHolds();
+}
@@ -0,0 +1,16 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.model.dto.IdempotentResponse;
+
+import java.util.Optional;
+
+public interface IdempotencyService {
+
+    Optional<IdempotentResponse> find(String userId, String idempotencyKey);
+
+    boolean tryClaim(String userId, String idempotencyKey, long saleId, int quantity);
+
+    void complete(String userId, String idempotencyKey, IdempotentResponse response);
+
+    void release(String userId, String idempotencyKey);
+}
@@ -1,15 +1,20 @@
 package com.example.flashsale.service;
 
+import com.example.flashsale.model.OrderStatus;
 import com.example.flashsale.model.Purchase;
 import com.example.flashsale.model.dto.PurchaseRequest;
+import com.example.flashsale.model.dto.PurchaseResult;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface PurchaseService {
 
-    boolean purchaseTickets(PurchaseRequest purchaseRequest);
+    PurchaseResult purchaseTickets(long saleId, PurchaseRequest purchaseRequest);
+
+    Optional<OrderStatus> getOrderStatus(String orderId);
 
     List<Purchase> getUserPurchases(String userId);
 
-    long countUserPurchases(String userId);
-}
\ No newline at end of file
+    long countUserPurchases(long saleId, String userId);
+}
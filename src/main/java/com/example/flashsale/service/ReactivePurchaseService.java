@@ -0,0 +1,10 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.model.dto.PurchaseRequest;
+import com.example.flashsale.model.dto.PurchaseResult;
+import reactor.core.publisher.Mono;
+
+public interface ReactivePurchaseService {
+
+    Mono<PurchaseResult> purchaseTickets(long saleId, PurchaseRequest purchaseRequest);
+}
@@ -0,0 +1,8 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.model.dto.ReconciliationReport;
+
+public interface ReconciliationService {
+
+    ReconciliationReport reconcile();
+}
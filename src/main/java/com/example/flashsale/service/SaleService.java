@@ -0,0 +1,20 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.model.Sale;
+import com.example.flashsale.model.dto.CreateSaleRequest;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface SaleService {
+
+    Optional<Sale> createSale(CreateSaleRequest request);
+
+    Sale getSale(long saleId);
+
+    List<Sale> getAllSales();
+
+    long getDefaultSaleId();
+
+    void addTickets(long saleId, int count);
+}
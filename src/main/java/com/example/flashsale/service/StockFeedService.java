@@ -0,0 +1,13 @@
+package com.example.flashsale.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Optional;
+
+public interface StockFeedService {
+
+    /**
+     * Opens a live stock feed for the sale, or returns empty when this node holds as many feeds as it allows.
+     */
+    Optional<SseEmitter> subscribe(long saleId);
+}
@@ -0,0 +1,65 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.model.dto.ReservationResult;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface StockReservationService {
+
+    ReservationResult reserve(long saleId, String orderId, String userId, int quantity);
+
+    ReservationResult reserveAndJournal(long saleId, String orderId, String userId, int quantity);
+
+    boolean release(long saleId, String orderId, String userId, List<Long> ticketIds);
+
+    /**
+     * Claims a pending order for its database write, or returns false if it was released meanwhile.
+     */
+    boolean beginCommit(String orderId);
+
+    /**
+     * Releases an order claimed by {@link #beginCommit} whose database write failed.
+     */
+    boolean rollbackCommit(long saleId, String orderId, String userId, List<Long> ticketIds);
+
+    /**
+     * Releases an order claimed by {@link #beginCommit} only if its writer's commit deadline has
+     * passed by the Redis clock, so a writer still inside its deadline keeps the tickets.
+     */
+    boolean rollbackExpiredCommit(long saleId, String orderId, String userId, List<Long> ticketIds);
+
+    ReservationResult hold(long saleId, String orderId, String userId, int quantity);
+
+    boolean confirmHold(long saleId, String orderId);
+
+    boolean releaseHold(long saleId, String orderId, String userId, List<Long> ticketIds);
+
+    /**
+     * Completes an order whose purchase is in the database. An order already released or expired
+     * is not completed.
+     */
+    void settle(long saleId, String orderId);
+
+    /**
+     * Holds of the sale whose deadline has passed by the Redis clock, at most {@code limit} of them.
+     */
+    List<String> findExpiredHolds(long saleId, int limit);
+
+    /**
+     * In-flight reservations of the sale taken more than {@code ageMs} ago by the Redis clock,
+     * at most {@code limit} of them.
+     */
+    List<String> findReservationsOlderThan(long saleId, long ageMs, int limit);
+
+    Mono<ReservationResult> reserveReactive(long saleId, String orderId, String userId, int quantity);
+
+    Mono<ReservationResult> reserveAndJournalReactive(long saleId, String orderId, String userId, int quantity);
+
+    Mono<Boolean> beginCommitReactive(String orderId);
+
+    Mono<Void> rollbackCommitReactive(long saleId, String orderId, String userId, List<Long> ticketIds);
+
+    long countReserved(long saleId, String userId);
+}
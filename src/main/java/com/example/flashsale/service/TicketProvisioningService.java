@@ -0,0 +1,23 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.model.dto.ProvisioningReport;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Optional;
+
+public interface TicketProvisioningService {
+
+    enum Format {
+        // ticketNumber,price per line, with an optional header line
+        CSV,
+        // one {"ticketNumber": ..., "price": ...} document per line
+        NDJSON
+    }
+
+    ProvisioningReport importTickets(long saleId, Format format, InputStream in);
+
+    Optional<ProvisioningReport> getJob(String jobId);
+
+    List<ProvisioningReport> getJobs();
+}
@@ -1,18 +1,34 @@
 package com.example.flashsale.service;
 
-import com.example.flashsale.model.Ticket;
+import com.example.flashsale.model.Sale;
+import com.example.flashsale.model.dto.TicketView;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface TicketService {
 
-    void initializeTickets(int totalTickets);
+    void initializeTickets(Sale sale);
 
-    long getAvailableTicketsCount();
+    void addStock(long saleId, List<Long> ticketIds);
 
-    boolean checkTicketAvailability(int quantity);
+    long getAvailableTicketsCount(long saleId);
 
-    List<Ticket> getAllTickets();
+    Mono<Long> getAvailableTicketsCountReactive(long saleId);
 
-    List<Ticket> getAvailableTickets();
+    /**
+     * Reads the stock straight from Redis, bypassing the shared snapshot and the sold-out flag,
+     * and leaves both untouched.
+     */
+    long readAvailableTickets(long saleId);
+
+    boolean isSoldOut(long saleId);
+
+    boolean checkTicketAvailability(long saleId, int quantity);
+
+    List<TicketView> getTickets(long after, int limit, boolean availableOnly);
+
+    void exportTickets(boolean availableOnly, OutputStream out) throws IOException;
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.example.flashsale.service;
+
+import com.example.flashsale.model.dto.WaitingRoomStatus;
+import com.example.flashsale.model.dto.WaitingRoomTicket;
+
+import java.util.Optional;
+
+public interface WaitingRoomService {
+
+    boolean isEnabled();
+
+    WaitingRoomTicket join(String userId);
+
+    Optional<WaitingRoomStatus> getStatus(String token);
+
+    boolean isAdmitted(String token, String userId);
+
+    long getTickIntervalMs();
+}
@@ -0,0 +1,183 @@
+package com.example.flashsale.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Single-flight reads of a sale's total stock: the shard counters plus the tickets nodes
+ * hold in stock leases. A value read less than the coalescing window ago is answered from
+ * memory; otherwise the first caller starts a Redis read and every concurrent caller
+ * for the same sale waits on it instead of issuing its own. Reads started at the same
+ * moment for different sales are sent together in one pipelined batch, so thousands of
+ * status pollers cost a handful of Redis round trips.
+ */
+@Component
+@RequiredArgsConstructor
+public class CoalescingStockReader {
+
+    private final RedissonClient redissonClient;
+    private final StockShards stockShards;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${flash-sale.stock.read-coalescing-window-ms}")
+    private long coalescingWindowMs;
+
+    private final Map<Long, SaleRead> reads = new ConcurrentHashMap<>();
+    private final Queue<SaleRead> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+
+    private long windowNanos;
+    private Counter snapshotReads;
+    private Counter sharedReads;
+    private Counter redisReads;
+
+    @PostConstruct
+    public void init() {
+        windowNanos = TimeUnit.MILLISECONDS.toNanos(coalescingWindowMs);
+        snapshotReads = readCounter("snapshot");
+        sharedReads = readCounter("shared");
+        redisReads = readCounter("redis");
+    }
+
+    public long read(long saleId) {
+        try {
+            return readAsync(saleId).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public CompletableFuture<Long> readAsync(long saleId) {
+        SaleRead read = reads.computeIfAbsent(saleId, SaleRead::new);
+        while (true) {
+            Snapshot snapshot = read.snapshot;
+            if (snapshot != null && System.nanoTime() - snapshot.readAt < windowNanos) {
+                snapshotReads.increment();
+                return CompletableFuture.completedFuture(snapshot.stock);
+            }
+
+            CompletableFuture<Long> inFlight = read.inFlight.get();
+            if (inFlight != null) {
+                sharedReads.increment();
+                return inFlight;
+            }
+
+            CompletableFuture<Long> started = new CompletableFuture<>();
+            if (read.inFlight.compareAndSet(null, started)) {
+                pending.add(read);
+                flush();
+                return started;
+            }
+            // Lost the race to start the read; join the winner's on the next pass
+        }
+    }
+
+    private void flush() {
+        // Whoever gets here first sends every sale queued so far; later arrivals are picked
+        // up by the loop or start the next batch
+        while (!pending.isEmpty() && flushing.compareAndSet(false, true)) {
+            try {
+                List<SaleRead> batchReads = new ArrayList<>();
+                SaleRead read;
+                while ((read = pending.poll()) != null) {
+                    batchReads.add(read);
+                }
+                if (batchReads.isEmpty()) {
+                    continue;
+                }
+                try {
+                    execute(batchReads);
+                } catch (RuntimeException e) {
+                    fail(batchReads, e);
+                }
+            } finally {
+                flushing.set(false);
+            }
+        }
+    }
+
+    private void execute(List<SaleRead> batchReads) {
+        long readAt = System.nanoTime();
+        RBatch batch = redissonClient.createBatch();
+        List<List<RFuture<Long>>> shardFutures = new ArrayList<>(batchReads.size());
+        for (SaleRead read : batchReads) {
+            List<RFuture<Long>> futures = new ArrayList<>(stockShards.getShardCount() + 1);
+            for (int shard = 0; shard < stockShards.getShardCount(); shard++) {
+                futures.add(batch.getAtomicLong(stockShards.stockKey(read.saleId, shard)).getAsync());
+            }
+            // Tickets leased to nodes are unsold too, they are just not in any shard
+            futures.add(batch.getAtomicLong(stockShards.leasedStockKey(read.saleId)).getAsync());
+            shardFutures.add(futures);
+        }
+
+        redisReads.increment(batchReads.size());
+        batch.executeAsync().whenComplete((result, error) -> {
+            if (error != null) {
+                fail(batchReads, error);
+                return;
+            }
+
+            for (int i = 0; i < batchReads.size(); i++) {
+                SaleRead read = batchReads.get(i);
+                CompletableFuture<Long> inFlight = read.inFlight.get();
+                long total = 0;
+                for (RFuture<Long> shardStock : shardFutures.get(i)) {
+                    total += Math.max(0, shardStock.toCompletableFuture().join());
+                }
+                // Publish the value before releasing the in-flight slot, so nobody starts a redundant read
+                read.snapshot = new Snapshot(total, readAt);
+                read.inFlight.set(null);
+                inFlight.complete(total);
+            }
+        });
+    }
+
+    private void fail(List<SaleRead> batchReads, Throwable error) {
+        for (SaleRead read : batchReads) {
+            read.inFlight.getAndSet(null).completeExceptionally(error);
+        }
+    }
+
+    private Counter readCounter(String source) {
+        return Counter.builder("flashsale.stock.reads")
+                .description("Stock reads by where they were answered from")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    private static final class SaleRead {
+
+        private final long saleId;
+        private final AtomicReference<CompletableFuture<Long>> inFlight = new AtomicReference<>();
+        private volatile Snapshot snapshot;
+
+        private SaleRead(long saleId) {
+            this.saleId = saleId;
+        }
+    }
+
+    private record Snapshot(long stock, long readAt) {
+    }
+}
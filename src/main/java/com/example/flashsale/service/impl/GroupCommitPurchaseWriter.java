@@ -0,0 +1,152 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.metrics.PurchaseMetrics;
+import com.example.flashsale.model.dto.PendingOrder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group-commit stage in front of {@link PurchaseWriter}. Orders submitted by concurrent
+ * requests are collected for up to the configured window (or until the batch is full)
+ * and written in a single transaction. Each caller's future completes once the batch
+ * containing its order has committed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class GroupCommitPurchaseWriter implements Runnable {
+
+    private final PurchaseWriter purchaseWriter;
+    private final PurchaseMetrics purchaseMetrics;
+
+    @Value("${flash-sale.group-commit.max-batch-size}")
+    private int maxBatchSize;
+
+    @Value("${flash-sale.group-commit.max-wait-ms}")
+    private long maxWaitMs;
+
+    private final BlockingQueue<PendingCommit> queue = new LinkedBlockingQueue<>();
+    private Thread flusherThread;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusherThread = new Thread(this, "purchase-group-commit");
+        flusherThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        flusherThread.join(TimeUnit.SECONDS.toMillis(10));
+
+        // Whatever the flusher did not reach (it timed out, or an order slipped in after it exited) is failed
+        // so that its caller releases the reservation instead of waiting forever
+        failPending();
+    }
+
+    public CompletableFuture<Void> submit(PendingOrder order) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Group commit writer is stopped"));
+        }
+
+        PendingCommit commit = new PendingCommit(order, System.nanoTime(), new CompletableFuture<>());
+        queue.add(commit);
+
+        // A stop between the check and the add may have already drained the queue for the last time
+        if (!running && queue.remove(commit)) {
+            commit.done().completeExceptionally(new IllegalStateException("Group commit writer is stopped"));
+        }
+        return commit.done();
+    }
+
+    private void failPending() {
+        List<PendingCommit> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        if (!pending.isEmpty()) {
+            log.warn("Group commit writer stopped with {} orders unwritten", pending.size());
+        }
+        pending.forEach(commit -> commit.done().completeExceptionally(
+                new IllegalStateException("Group commit writer is stopped")));
+    }
+
+    @Override
+    public void run() {
+        // Keep flushing after a stop request until callers that already queued are served
+        while (running || !queue.isEmpty()) {
+            try {
+                List<PendingCommit> batch = nextBatch();
+                if (!batch.isEmpty()) {
+                    commit(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private List<PendingCommit> nextBatch() throws InterruptedException {
+        List<PendingCommit> batch = new ArrayList<>(maxBatchSize);
+        PendingCommit first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+
+        // The window opens with the first order; whatever arrives before it closes rides along
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                break;
+            }
+
+            PendingCommit next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void commit(List<PendingCommit> batch) {
+        // Time spent queued and collecting the batch before its transaction starts
+        batch.forEach(commit -> purchaseMetrics.recordStage(PurchaseMetrics.STAGE_COMMIT_QUEUE,
+                PurchaseMetrics.OUTCOME_SUCCESS, commit.submittedAt()));
+
+        try {
+            purchaseWriter.persistBatch(batch.stream().map(PendingCommit::order).toList());
+            batch.forEach(commit -> commit.done().complete(null));
+            log.debug("Group commit wrote {} orders", batch.size());
+        } catch (Exception e) {
+            // One bad order must not fail everyone else in the batch, so retry one by one
+            log.warn("Group commit of {} orders failed. Retrying individually.", batch.size(), e);
+            for (PendingCommit commit : batch) {
+                try {
+                    purchaseWriter.persistBatch(List.of(commit.order()));
+                    commit.done().complete(null);
+                } catch (Exception individualFailure) {
+                    commit.done().completeExceptionally(individualFailure);
+                }
+            }
+        }
+    }
+
+    private record PendingCommit(PendingOrder order, long submittedAt, CompletableFuture<Void> done) {
+    }
+}
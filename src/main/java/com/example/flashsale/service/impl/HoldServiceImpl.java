@@ -0,0 +1,249 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.exception.ResourceNotFoundException;
+import com.example.flashsale.metrics.PurchaseMetrics;
+import com.example.flashsale.model.Sale;
+import com.example.flashsale.model.dto.HoldResult;
+import com.example.flashsale.model.dto.PendingOrder;
+import com.example.flashsale.model.dto.PurchaseResult;
+import com.example.flashsale.model.dto.ReservationResult;
+import com.example.flashsale.repository.TicketRepository;
+import com.example.flashsale.service.HoldService;
+import com.example.flashsale.service.SaleService;
+import com.example.flashsale.service.StockReservationService;
+import com.example.flashsale.service.UserService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Two-phase purchases. A hold takes tickets out of stock in Redis and flags them as
+ * reserved in the database with one short UPDATE; no connection or lock is kept while
+ * the buyer pays. Confirming turns the hold into an ordinary in-flight reservation and
+ * persists the purchase the same way a one-step purchase does.
+ *
+ * Every hold is scored by its deadline in a per-sale sorted set, so the expiry sweep only
+ * reads the holds that are due, oldest first, instead of scanning tickets. Confirming and
+ * expiring both flip the order's status in Redis atomically, so exactly one of them wins.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HoldServiceImpl implements HoldService {
+
+    private final StockReservationService stockReservationService;
+    private final UserService userService;
+    private final SaleService saleService;
+    private final TicketRepository ticketRepository;
+    private final PurchaseWriter purchaseWriter;
+    private final GroupCommitPurchaseWriter groupCommitPurchaseWriter;
+    private final RedissonClient redissonClient;
+    private final StockShards stockShards;
+    private final PurchaseMetrics purchaseMetrics;
+
+    @Value("${flash-sale.holds.ttl-seconds}")
+    private long ttlSeconds;
+
+    @Value("${flash-sale.holds.expiry-interval-ms}")
+    private long expiryIntervalMs;
+
+    @Value("${flash-sale.holds.expiry-batch-size}")
+    private int expiryBatchSize;
+
+    @Value("${flash-sale.group-commit.enabled}")
+    private boolean groupCommitEnabled;
+
+    @Value("${flash-sale.redis.order-key-prefix}")
+    private String orderKeyPrefix;
+
+    @Value("${flash-sale.redis.hold-expiry-lease-key}")
+    private String leaseKey;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hold-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::scheduledSweep, expiryIntervalMs, expiryIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public HoldResult hold(long saleId, String userId, int quantity) {
+        userService.getUserByUserId(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+
+        String holdId = UUID.randomUUID().toString();
+        ReservationResult reservation = stockReservationService.hold(saleId, holdId, userId, quantity);
+        if (!reservation.isReserved()) {
+            log.warn("Hold rejected for user: {}. Requested: {}, Status: {}", userId, quantity, reservation.getStatus());
+            return HoldResult.rejected(saleId, reservation.getStatus());
+        }
+
+        try {
+            ticketRepository.markHeld(reservation.getTicketIds(), holdId, LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.error("Error flagging held tickets for user: {}", userId, e);
+            stockReservationService.releaseHold(saleId, holdId, userId, reservation.getTicketIds());
+            throw e;
+        }
+
+        log.info("Held tickets {} of sale {} for user: {}", reservation.getTicketIds(), saleId, userId);
+        return HoldResult.builder()
+                .holdId(holdId)
+                .saleId(saleId)
+                .reservationStatus(reservation.getStatus())
+                .ticketIds(reservation.getTicketIds())
+                .expiresAt(LocalDateTime.now().plusSeconds(ttlSeconds))
+                .build();
+    }
+
+    @Override
+    public Optional<PurchaseResult> confirm(long saleId, String holdId, String userId) {
+        List<Long> ticketIds = findHeldTickets(saleId, holdId, userId);
+        if (!stockReservationService.confirmHold(saleId, holdId)) {
+            log.warn("Hold {} of sale {} expired or is no longer held", holdId, saleId);
+            return Optional.empty();
+        }
+
+        long start = purchaseMetrics.startPurchase();
+        PurchaseResult result = null;
+        try {
+            result = persist(saleId, holdId, userId, ticketIds);
+            return Optional.of(result);
+        } finally {
+            purchaseMetrics.endPurchase(start, result);
+        }
+    }
+
+    @Override
+    public boolean cancel(long saleId, String holdId, String userId) {
+        List<Long> ticketIds = findHeldTickets(saleId, holdId, userId);
+        return release(saleId, holdId, userId, ticketIds);
+    }
+
+    @Override
+    public int expireHolds() {
+        int expired = 0;
+        for (Sale sale : saleService.getAllSales()) {
+            // Every hold read here leaves the set, whether it is released or was confirmed meanwhile
+            List<String> due;
+            do {
+                due = stockReservationService.findExpiredHolds(sale.getId(), expiryBatchSize);
+                for (String holdId : due) {
+                    if (expire(sale.getId(), holdId)) {
+                        expired++;
+                    }
+                }
+            } while (due.size() == expiryBatchSize);
+        }
+
+        if (expired > 0) {
+            log.info("Returned {} expired holds to stock", expired);
+        }
+        return expired;
+    }
+
+    private void scheduledSweep() {
+        try {
+            // One node per interval sweeps; overlapping sweeps are still safe
+            boolean leader = redissonClient.getBucket(leaseKey, StringCodec.INSTANCE)
+                    .setIfAbsent("1", Duration.ofMillis(Math.max(1, expiryIntervalMs - 100)));
+            if (leader) {
+                expireHolds();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Hold expiry sweep failed", e);
+        }
+    }
+
+    private boolean expire(long saleId, String holdId) {
+        Map<String, String> order = redissonClient.<String, String>getMap(orderKeyPrefix + holdId, StringCodec.INSTANCE)
+                .readAllMap();
+        if (order.isEmpty()) {
+            // The order record is gone, so there is nothing left to return
+            redissonClient.getScoredSortedSet(stockShards.holdKey(saleId), StringCodec.INSTANCE).remove(holdId);
+            return false;
+        }
+        return release(saleId, holdId, order.get("userId"), parseTicketIds(order.get("ticketIds")));
+    }
+
+    private boolean release(long saleId, String holdId, String userId, List<Long> ticketIds) {
+        if (!stockReservationService.releaseHold(saleId, holdId, userId, ticketIds)) {
+            return false;
+        }
+        ticketRepository.clearHold(ticketIds, holdId, LocalDateTime.now());
+        purchaseMetrics.countTickets("released", ticketIds.size());
+        return true;
+    }
+
+    private PurchaseResult persist(long saleId, String holdId, String userId, List<Long> ticketIds) {
+        PendingOrder order = PendingOrder.builder()
+                .orderId(holdId)
+                .saleId(saleId)
+                .userId(userId)
+                .quantity(ticketIds.size())
+                .ticketIds(ticketIds)
+                .build();
+
+        try {
+            if (groupCommitEnabled) {
+                groupCommitPurchaseWriter.submit(order).join();
+            } else {
+                purchaseWriter.persistBatch(List.of(order));
+            }
+            stockReservationService.settle(saleId, holdId);
+            log.info("Confirmed hold {} of sale {} for user: {}", holdId, saleId, userId);
+            return PurchaseResult.completed(holdId);
+        } catch (Exception e) {
+            log.error("Error confirming hold {} for user: {}", holdId, userId, e);
+            // Confirming claimed the order for this write, so it is rolled back like any failed commit
+            if (stockReservationService.rollbackCommit(saleId, holdId, userId, ticketIds)) {
+                ticketRepository.clearHold(ticketIds, holdId, LocalDateTime.now());
+            }
+            purchaseMetrics.countTickets("released", ticketIds.size());
+            return PurchaseResult.failed(holdId);
+        }
+    }
+
+    private List<Long> findHeldTickets(long saleId, String holdId, String userId) {
+        Map<String, String> order = redissonClient.<String, String>getMap(orderKeyPrefix + holdId, StringCodec.INSTANCE)
+                .readAllMap();
+        if (order.isEmpty() || !String.valueOf(saleId).equals(order.get("saleId"))
+                || !userId.equals(order.get("userId"))) {
+            throw new ResourceNotFoundException("Hold not found with id: " + holdId);
+        }
+        return parseTicketIds(order.get("ticketIds"));
+    }
+
+    private List<Long> parseTicketIds(String joinedIds) {
+        if (joinedIds == null || joinedIds.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(joinedIds.split(",")).map(Long::valueOf).toList();
+    }
+}
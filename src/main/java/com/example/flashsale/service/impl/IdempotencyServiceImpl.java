@@ -0,0 +1,105 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.model.dto.IdempotentResponse;
+import com.example.flashsale.service.IdempotencyService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Stores purchase outcomes under client-supplied idempotency keys. Keys are scoped to
+ * the user so one client cannot collide with another. Completed outcomes are kept in
+ * Redis for the configured TTL and mirrored in a small local cache, so a retry is
+ * answered from memory or a single Redis GET. Records are stored with the client's value
+ * codec, compact binary by default.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private final RedissonClient redissonClient;
+
+    @Value("${flash-sale.redis.idempotency-key-prefix}")
+    private String idempotencyKeyPrefix;
+
+    @Value("${flash-sale.idempotency.ttl-seconds}")
+    private long ttlSeconds;
+
+    @Value("${flash-sale.idempotency.in-progress-ttl-seconds}")
+    private long inProgressTtlSeconds;
+
+    @Value("${flash-sale.idempotency.local-cache-size}")
+    private long localCacheSize;
+
+    @Value("${flash-sale.idempotency.local-cache-ttl-seconds}")
+    private long localCacheTtlSeconds;
+
+    private Cache<String, IdempotentResponse> localCache;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(localCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(localCacheTtlSeconds))
+                .build();
+    }
+
+    @Override
+    public Optional<IdempotentResponse> find(String userId, String idempotencyKey) {
+        String key = redisKey(userId, idempotencyKey);
+        IdempotentResponse cached = localCache.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        IdempotentResponse response = bucket(key).get();
+        if (response == null) {
+            return Optional.empty();
+        }
+
+        if (response.isCompleted()) {
+            localCache.put(key, response);
+        }
+        return Optional.of(response);
+    }
+
+    @Override
+    public boolean tryClaim(String userId, String idempotencyKey, long saleId, int quantity) {
+        // Marks the key as in progress so a concurrent duplicate does not purchase twice;
+        // the short TTL frees the key if this node dies before completing it
+        return bucket(redisKey(userId, idempotencyKey))
+                .setIfAbsent(IdempotentResponse.inProgress(saleId, quantity), Duration.ofSeconds(inProgressTtlSeconds));
+    }
+
+    @Override
+    public void complete(String userId, String idempotencyKey, IdempotentResponse response) {
+        String key = redisKey(userId, idempotencyKey);
+        bucket(key).set(response, Duration.ofSeconds(ttlSeconds));
+        localCache.put(key, response);
+    }
+
+    @Override
+    public void release(String userId, String idempotencyKey) {
+        String key = redisKey(userId, idempotencyKey);
+        bucket(key).delete();
+        localCache.invalidate(key);
+    }
+
+    private RBucket<IdempotentResponse> bucket(String key) {
+        return redissonClient.getBucket(key);
+    }
+
+    private String redisKey(String userId, String idempotencyKey) {
+        return idempotencyKeyPrefix + userId + ":" + idempotencyKey;
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.exception.ResourceNotFoundException;
+import com.example.flashsale.model.OrderStatus;
+import com.example.flashsale.model.dto.PendingOrder;
+import com.example.flashsale.service.SaleService;
+import com.example.flashsale.service.StockReservationService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.AutoClaimResult;
+import org.redisson.api.PendingEntry;
+import org.redisson.api.RBatch;
+import org.redisson.api.RStream;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.StreamMessageId;
+import org.redisson.api.stream.StreamAddArgs;
+import org.redisson.api.stream.StreamCreateGroupArgs;
+import org.redisson.api.stream.StreamReadGroupArgs;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drains reservations journaled to the order stream into the database in batches.
+ * Entries are acknowledged only after their batch commits, so entries left pending
+ * by a crashed node are claimed back through the consumer group once they have been
+ * idle for longer than the configured claim interval.
+ *
+ * An order that can never be written (its user or tickets are missing, or a constraint
+ * rejects it) is failed and its reservation released. Any other failure leaves the entry
+ * unacknowledged so it is claimed back and retried; after the configured number of
+ * deliveries it is moved to a dead-letter stream with its reservation kept.
+ */
+@Component
+@ConditionalOnProperty(name = "flash-sale.purchase.mode", havingValue = "write-behind")
+@RequiredArgsConstructor
+@Slf4j
+public class OrderWriteBehindWorker implements Runnable {
+
+    private static final StreamMessageId STREAM_START = new StreamMessageId(0, 0);
+
+    private final RedissonClient redissonClient;
+    private final PurchaseWriter purchaseWriter;
+    private final StockReservationService stockReservationService;
+    private final SaleService saleService;
+
+    @Value("${flash-sale.redis.order-stream-key}")
+    private String orderStreamKey;
+
+    @Value("${flash-sale.redis.order-key-prefix}")
+    private String orderKeyPrefix;
+
+    @Value("${flash-sale.redis.order-dead-letter-key}")
+    private String deadLetterKey;
+
+    @Value("${flash-sale.write-behind.max-attempts}")
+    private long maxAttempts;
+
+    @Value("${flash-sale.write-behind.consumer-group}")
+    private String consumerGroup;
+
+    @Value("${flash-sale.write-behind.batch-size}")
+    private int batchSize;
+
+    @Value("${flash-sale.write-behind.poll-timeout-ms}")
+    private long pollTimeoutMs;
+
+    @Value("${flash-sale.write-behind.claim-idle-ms}")
+    private long claimIdleMs;
+
+    private final String consumerName = ManagementFactory.getRuntimeMXBean().getName();
+
+    private RStream<String, String> stream;
+    private Thread workerThread;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        stream = redissonClient.getStream(orderStreamKey, StringCodec.INSTANCE);
+
+        try {
+            stream.createGroup(StreamCreateGroupArgs.name(consumerGroup).id(STREAM_START).makeStream());
+            log.info("Created consumer group {} on stream {}", consumerGroup, orderStreamKey);
+        } catch (RedisException e) {
+            if (e.getMessage() == null || !e.getMessage().contains("BUSYGROUP")) {
+                throw e;
+            }
+        }
+
+        running = true;
+        workerThread = new Thread(this, "order-write-behind");
+        workerThread.start();
+        log.info("Write-behind worker {} started", consumerName);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        workerThread.interrupt();
+        workerThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    @Override
+    public void run() {
+        long lastRecovery = 0;
+
+        while (running) {
+            try {
+                long now = System.currentTimeMillis();
+                if (now - lastRecovery >= claimIdleMs) {
+                    recoverAbandonedEntries();
+                    lastRecovery = now;
+                }
+
+                Map<StreamMessageId, Map<String, String>> entries = stream.readGroup(consumerGroup, consumerName,
+                        StreamReadGroupArgs.neverDelivered()
+                                .count(batchSize)
+                                .timeout(Duration.ofMillis(pollTimeoutMs)));
+
+                if (entries != null && !entries.isEmpty()) {
+                    process(entries);
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                log.error("Write-behind worker iteration failed", e);
+                sleepQuietly(pollTimeoutMs);
+            }
+        }
+        log.info("Write-behind worker {} stopped", consumerName);
+    }
+
+    private void recoverAbandonedEntries() {
+        StreamMessageId cursor = STREAM_START;
+
+        do {
+            AutoClaimResult<String, String> claimed = stream.autoClaim(consumerGroup, consumerName,
+                    claimIdleMs, TimeUnit.MILLISECONDS, cursor, batchSize);
+
+            if (!claimed.getMessages().isEmpty()) {
+                log.warn("Recovered {} unacknowledged order entries", claimed.getMessages().size());
+                process(claimed.getMessages());
+            }
+            cursor = claimed.getNextId();
+        } while (running && !STREAM_START.equals(cursor));
+    }
+
+    private void process(Map<StreamMessageId, Map<String, String>> entries) {
+        List<PendingOrder> orders = new ArrayList<>(entries.size());
+        Map<String, StreamMessageId> entryIds = new HashMap<>();
+        List<StreamMessageId> done = new ArrayList<>(entries.size());
+        for (Map.Entry<StreamMessageId, Map<String, String>> entry : entries.entrySet()) {
+            Map<String, String> fields = entry.getValue();
+            // Trimmed entries can still be referenced by the pending list
+            if (fields == null || fields.get("orderId") == null) {
+                done.add(entry.getKey());
+                continue;
+            }
+            PendingOrder order = PendingOrder.builder()
+                    .orderId(fields.get("orderId"))
+                    .saleId(saleId(fields))
+                    .userId(fields.get("userId"))
+                    .quantity(Integer.parseInt(fields.get("quantity")))
+                    .ticketIds(parseTicketIds(fields.get("ticketIds")))
+                    .build();
+            orders.add(order);
+            entryIds.put(order.getOrderId(), entry.getKey());
+        }
+
+        try {
+            purchaseWriter.persistBatch(orders);
+            markOrders(orders, OrderStatus.COMPLETED);
+            done.addAll(entryIds.values());
+        } catch (Exception e) {
+            // One bad order must not fail the whole batch, so retry the orders one by one
+            log.warn("Batch of {} orders failed. Retrying individually.", orders.size(), e);
+            for (PendingOrder order : orders) {
+                StreamMessageId entryId = entryIds.get(order.getOrderId());
+                if (persistSingle(order, entryId, entries.get(entryId))) {
+                    done.add(entryId);
+                }
+            }
+        }
+
+        // Entries left unacknowledged are claimed back and retried once they have been idle long enough
+        if (!done.isEmpty()) {
+            stream.ack(consumerGroup, done.toArray(new StreamMessageId[0]));
+        }
+        log.debug("Acknowledged {} of {} order entries", done.size(), entries.size());
+    }
+
+    /**
+     * @return whether the entry is finished with and can be acknowledged
+     */
+    private boolean persistSingle(PendingOrder order, StreamMessageId entryId, Map<String, String> fields) {
+        try {
+            purchaseWriter.persistBatch(List.of(order));
+            markOrders(List.of(order), OrderStatus.COMPLETED);
+            return true;
+        } catch (Exception e) {
+            if (isPermanent(e)) {
+                // The order can never be written, so give its tickets back rather than retrying forever
+                log.error("Failed to persist order {} for user {}. Releasing reservation.",
+                        order.getOrderId(), order.getUserId(), e);
+                stockReservationService.release(order.getSaleId(), order.getOrderId(), order.getUserId(), order.getTicketIds());
+                markOrders(List.of(order), OrderStatus.FAILED);
+                return true;
+            }
+
+            // The buyer was told the order is accepted, so a failure that may pass is retried and,
+            // if it keeps failing, parked for an operator with its reservation kept
+            long attempts = deliveries(entryId);
+            if (attempts < maxAttempts) {
+                log.warn("Order {} failed to persist (attempt {} of {}). It will be retried.",
+                        order.getOrderId(), attempts, maxAttempts, e);
+                return false;
+            }
+            log.error("Order {} failed to persist {} times. Moving it to {}.",
+                    order.getOrderId(), attempts, deadLetterKey, e);
+            redissonClient.<String, String>getStream(deadLetterKey, StringCodec.INSTANCE)
+                    .add(StreamAddArgs.entries(fields));
+            return true;
+        }
+    }
+
+    private long deliveries(StreamMessageId entryId) {
+        List<PendingEntry> pending = stream.listPending(consumerGroup, entryId, entryId, 1);
+        return pending.isEmpty() ? 1 : pending.get(0).getLastTimeDelivered();
+    }
+
+    private boolean isPermanent(Throwable error) {
+        // Missing users or tickets, tickets already sold and constraint violations fail the same way
+        // on every attempt; anything else (lock timeouts, an exhausted pool, a lost connection) may not
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ResourceNotFoundException
+                    || cause instanceof IllegalStateException
+                    || cause instanceof DataIntegrityViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void markOrders(List<PendingOrder> orders, OrderStatus status) {
+        RBatch batch = redissonClient.createBatch();
+        for (PendingOrder order : orders) {
+            batch.<String, String>getMap(orderKeyPrefix + order.getOrderId(), StringCodec.INSTANCE)
+                    .fastPutAsync("status", status.name());
+        }
+        batch.execute();
+    }
+
+    private long saleId(Map<String, String> fields) {
+        // Entries written before sales existed carry no sale ID; they were all sold from the default sale
+        String saleId = fields.get("saleId");
+        return saleId != null ? Long.parseLong(saleId) : saleService.getDefaultSaleId();
+    }
+
+    private List<Long> parseTicketIds(String joinedIds) {
+        List<Long> ticketIds = new ArrayList<>();
+        for (String ticketId : joinedIds.split(",")) {
+            ticketIds.add(Long.valueOf(ticketId));
+        }
+        return ticketIds;
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.util.LuaScript;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-user rate limit shared by all nodes through Redis. A node takes a small batch of
+ * a user's tokens from Redis at once and admits that user's next requests against it
+ * locally, so only one request per batch makes a Redis round trip. Every token still
+ * comes from the shared limit, so no user goes over it cluster-wide; tokens a node does
+ * not use before its share expires are lost. Requests from a user Redis has recently
+ * rejected are rejected locally until the wait it gave has passed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PerUserRateLimiter {
+
+    private final RedissonClient redissonClient;
+
+    @Value("${flash-sale.redis.rate-limit-key-prefix}")
+    private String rateLimitKeyPrefix;
+
+    @Value("${flash-sale.admission.per-user.rate-per-second}")
+    private double ratePerSecond;
+
+    @Value("${flash-sale.admission.per-user.burst}")
+    private int burst;
+
+    @Value("${flash-sale.admission.per-user.local-batch}")
+    private int localBatch;
+
+    @Value("${flash-sale.admission.per-user.local-cache-size}")
+    private long localCacheSize;
+
+    private LuaScript rateLimitScript;
+    private Cache<String, AtomicInteger> localShares;
+    private Cache<String, Long> blockedUntil;
+    private long emissionIntervalMicros;
+    private long burstToleranceMicros;
+
+    @PostConstruct
+    public void init() {
+        rateLimitScript = new LuaScript(redissonClient, "scripts/rate_limit.lua");
+        emissionIntervalMicros = Math.max(1, Math.round(TimeUnit.SECONDS.toMicros(1) / ratePerSecond));
+        burstToleranceMicros = emissionIntervalMicros * Math.max(1, burst);
+        // A share is spent from the shared limit when it is taken, so it is not kept for longer
+        // than the limit would take to hand out that many tokens again
+        localShares = Caffeine.newBuilder()
+                .maximumSize(localCacheSize)
+                .expireAfterWrite(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(emissionIntervalMicros * localBatch)))
+                .build();
+        blockedUntil = Caffeine.newBuilder()
+                .maximumSize(localCacheSize)
+                .expireAfterWrite(Duration.ofMinutes(1))
+                .build();
+    }
+
+    /**
+     * @return 0 if the user's request is admitted, otherwise the nanoseconds to wait
+     */
+    public long tryAcquire(String userId) {
+        long now = System.nanoTime();
+        Long blocked = blockedUntil.getIfPresent(userId);
+        if (blocked != null && blocked - now > 0) {
+            return blocked - now;
+        }
+
+        AtomicInteger share = localShares.getIfPresent(userId);
+        if (share != null && share.getAndUpdate(tokens -> Math.max(0, tokens - 1)) > 0) {
+            return 0;
+        }
+
+        List<Long> reply;
+        try {
+            reply = rateLimitScript.eval(RScript.ReturnType.MULTI, List.of(rateLimitKeyPrefix + userId),
+                    emissionIntervalMicros, burstToleranceMicros, localBatch);
+        } catch (RuntimeException e) {
+            // Fail open: losing the shared limit is better than rejecting the whole sale
+            log.warn("Per-user rate limit check failed for user: {}. Admitting request.", userId, e);
+            return 0;
+        }
+
+        long granted = reply.get(0);
+        if (granted > 0) {
+            // This request takes one token; the rest admit the user's next requests on this node
+            if (granted > 1) {
+                localShares.put(userId, new AtomicInteger((int) granted - 1));
+            }
+            return 0;
+        }
+
+        long waitNanos = TimeUnit.MICROSECONDS.toNanos(reply.get(1));
+        blockedUntil.put(userId, now + waitNanos);
+        return waitNanos;
+    }
+}
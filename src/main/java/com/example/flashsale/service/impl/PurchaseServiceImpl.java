@@ -1,132 +1,155 @@
 package com.example.flashsale.service.impl;
 
 import com.example.flashsale.exception.ResourceNotFoundException;
+import com.example.flashsale.metrics.PurchaseMetrics;
+import com.example.flashsale.model.OrderStatus;
 import com.example.flashsale.model.Purchase;
-import com.example.flashsale.model.Ticket;
 import com.example.flashsale.model.User;
+import com.example.flashsale.model.dto.PendingOrder;
 import com.example.flashsale.model.dto.PurchaseRequest;
+import com.example.flashsale.model.dto.PurchaseResult;
+import com.example.flashsale.model.dto.ReservationResult;
 import com.example.flashsale.repository.PurchaseRepository;
-import com.example.flashsale.repository.TicketRepository;
 import com.example.flashsale.service.PurchaseService;
+import com.example.flashsale.service.StockReservationService;
 import com.example.flashsale.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RAtomicLong;
-import org.redisson.api.RLock;
+import org.redisson.api.RMap;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PurchaseServiceImpl implements PurchaseService {
 
+    private static final String WRITE_BEHIND_MODE = "write-behind";
+
     private final PurchaseRepository purchaseRepository;
-    private final TicketRepository ticketRepository;
     private final UserService userService;
+    private final StockReservationService stockReservationService;
+    private final PurchaseWriter purchaseWriter;
+    private final GroupCommitPurchaseWriter groupCommitPurchaseWriter;
     private final RedissonClient redissonClient;
+    private final PurchaseMetrics purchaseMetrics;
+
+    @Value("${flash-sale.purchase.mode}")
+    private String purchaseMode;
 
-    @Value("${flash-sale.redis.ticket-stock-key}")
-    private String ticketStockKey;
+    @Value("${flash-sale.group-commit.enabled}")
+    private boolean groupCommitEnabled;
 
-    @Value("${flash-sale.redis.user-purchase-key}")
-    private String userPurchaseKeyPrefix;
+    @Value("${flash-sale.redis.order-key-prefix}")
+    private String orderKeyPrefix;
 
     @Override
-    @Transactional
-    public boolean purchaseTickets(PurchaseRequest purchaseRequest) {
+    public PurchaseResult purchaseTickets(long saleId, PurchaseRequest purchaseRequest) {
+        long start = purchaseMetrics.startPurchase();
+        PurchaseResult result = null;
+        try {
+            result = processPurchase(saleId, purchaseRequest);
+            return result;
+        } finally {
+            purchaseMetrics.endPurchase(start, result);
+        }
+    }
+
+    private PurchaseResult processPurchase(long saleId, PurchaseRequest purchaseRequest) {
         String userId = purchaseRequest.getUserId();
         int quantity = purchaseRequest.getQuantity();
+        String orderId = UUID.randomUUID().toString();
 
         // Check if user exists
-        User user = userService.getUserByUserId(userId)
+        purchaseMetrics.timeStage(PurchaseMetrics.STAGE_USER_LOOKUP, () -> userService.getUserByUserId(userId))
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
 
-        // Get distributed lock for the user to prevent concurrent purchases by the same
-        // user
-        String lockKey = "lock:user:" + userId;
-        RLock lock = redissonClient.getLock(lockKey);
-
-        try {
-            // Try to acquire the lock with a timeout
-            boolean isLockAcquired = lock.tryLock(5, 10, TimeUnit.SECONDS);
-
-            if (!isLockAcquired) {
-                log.warn("Failed to acquire lock for user: {}. Another purchase might be in progress.", userId);
-                return false;
+        if (WRITE_BEHIND_MODE.equals(purchaseMode)) {
+            // The Redis reservation is the commit point; the order is persisted in the background
+            long reserveStart = System.nanoTime();
+            ReservationResult reservation = stockReservationService.reserveAndJournal(saleId, orderId, userId, quantity);
+            purchaseMetrics.recordStage(PurchaseMetrics.STAGE_RESERVE,
+                    PurchaseMetrics.outcome(reservation.getStatus()), reserveStart);
+            if (!reservation.isReserved()) {
+                log.warn("Reservation rejected for user: {}. Requested: {}, Status: {}",
+                        userId, quantity, reservation.getStatus());
+                return PurchaseResult.rejected(reservation.getStatus());
             }
 
-            // Check ticket availability in Redis (fast check without hitting the database)
-            RAtomicLong stockCounter = redissonClient.getAtomicLong(ticketStockKey);
-            long availableCount = stockCounter.get();
-
-            if (availableCount < quantity) {
-                log.warn("Not enough tickets available. Requested: {}, Available: {}", quantity, availableCount);
-                return false;
-            }
-
-            // Atomically decrement the stock
-            if (stockCounter.addAndGet(-quantity) < 0) {
-                // Rollback if we went below zero
-                stockCounter.addAndGet(quantity);
-                log.warn("Race condition detected, stock would go negative. Rolling back.");
-                return false;
-            }
+            log.info("Accepted order {} for {} tickets for user: {}", orderId, quantity, userId);
+            return PurchaseResult.pending(orderId);
+        }
 
-            // Get available tickets from the database
-            List<Ticket> availableTickets = ticketRepository.findBySold(false);
+        // Check the per-user limit, decrement the stock, take ticket IDs from the token pool
+        // and record the user in a single atomic Redis call
+        long reserveStart = System.nanoTime();
+        ReservationResult reservation = stockReservationService.reserve(saleId, orderId, userId, quantity);
+        purchaseMetrics.recordStage(PurchaseMetrics.STAGE_RESERVE,
+                PurchaseMetrics.outcome(reservation.getStatus()), reserveStart);
+
+        if (!reservation.isReserved()) {
+            log.warn("Reservation rejected for user: {}. Requested: {}, Status: {}",
+                    userId, quantity, reservation.getStatus());
+            return PurchaseResult.rejected(reservation.getStatus());
+        }
 
-            if (availableTickets.size() < quantity) {
-                // Rollback the Redis decrement if database doesn't match
-                stockCounter.addAndGet(quantity);
-                log.error("Database inconsistency detected! Redis count: {}, DB count: {}",
-                        stockCounter.get() + quantity, availableTickets.size());
-                return false;
-            }
+        PendingOrder order = PendingOrder.builder()
+                .orderId(orderId)
+                .saleId(saleId)
+                .userId(userId)
+                .quantity(quantity)
+                .ticketIds(reservation.getTicketIds())
+                .build();
+
+        // Claim the order before writing it, so the reconciler cannot hand these tickets to another
+        // buyer while they are being sold here; orders sold from a stock lease come back claimed
+        if (!reservation.isCommitting() && !stockReservationService.beginCommit(orderId)) {
+            log.warn("Order {} was released before it could be committed", orderId);
+            return PurchaseResult.failed(orderId);
+        }
 
-            // Process the purchase in the database
-            for (int i = 0; i < quantity; i++) {
-                Ticket ticket = availableTickets.get(i);
-                ticket.setSold(true);
-                ticket.setUpdatedAt(LocalDateTime.now());
-                ticketRepository.save(ticket);
-
-                Purchase purchase = Purchase.builder()
-                        .user(user)
-                        .ticket(ticket)
-                        .transactionId(UUID.randomUUID().toString())
-                        .amount(ticket.getPrice())
-                        .purchaseTime(LocalDateTime.now())
-                        .status("COMPLETED")
-                        .build();
-
-                purchaseRepository.save(purchase);
+        try {
+            if (groupCommitEnabled) {
+                // Wait until the batch carrying this order has committed
+                groupCommitPurchaseWriter.submit(order).join();
+            } else {
+                purchaseWriter.persistBatch(List.of(order));
             }
-
+            stockReservationService.settle(saleId, orderId);
             log.info("Successfully processed purchase of {} tickets for user: {}", quantity, userId);
-            return true;
-
+            return PurchaseResult.completed(orderId);
         } catch (Exception e) {
             log.error("Error processing purchase for user: {}", userId, e);
-            // Ensure we roll back the Redis count if an error occurs
-            RAtomicLong stockCounter = redissonClient.getAtomicLong(ticketStockKey);
-            stockCounter.addAndGet(quantity);
-            return false;
-        } finally {
-            // Release the lock if we hold it
-            if (lock.isHeldByCurrentThread()) {
-                lock.unlock();
-            }
+            // Ensure we roll back the Redis reservation if an error occurs
+            purchaseMetrics.timeStage(PurchaseMetrics.STAGE_RELEASE, () -> {
+                stockReservationService.rollbackCommit(saleId, orderId, userId, reservation.getTicketIds());
+                return null;
+            });
+            purchaseMetrics.countTickets("released", reservation.getTicketIds().size());
+            return PurchaseResult.failed(orderId);
         }
     }
 
+    @Override
+    public Optional<OrderStatus> getOrderStatus(String orderId) {
+        RMap<String, String> order = redissonClient.getMap(orderKeyPrefix + orderId, StringCodec.INSTANCE);
+        String status = order.get("status");
+        if (status != null) {
+            return Optional.of(OrderStatus.valueOf(status));
+        }
+
+        // Synchronous orders and expired order records are only known to the database
+        return purchaseRepository.existsByTransactionId(orderId)
+                ? Optional.of(OrderStatus.COMPLETED)
+                : Optional.empty();
+    }
+
     @Override
     public List<Purchase> getUserPurchases(String userId) {
         User user = userService.getUserByUserId(userId)
@@ -136,7 +159,8 @@ public class PurchaseServiceImpl implements PurchaseService {
     }
 
     @Override
-    public long countUserPurchases(String userId) {
-        return purchaseRepository.countPurchasesByUserId(userId);
+    public long countUserPurchases(long saleId, String userId) {
+        // The reservation counter is the source of truth for the per-user limit, so no query is needed
+        return stockReservationService.countReserved(saleId, userId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,134 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.exception.ResourceNotFoundException;
+import com.example.flashsale.metrics.PurchaseMetrics;
+import com.example.flashsale.model.Purchase;
+import com.example.flashsale.model.Ticket;
+import com.example.flashsale.model.User;
+import com.example.flashsale.model.dto.PendingOrder;
+import com.example.flashsale.repository.PurchaseRepository;
+import com.example.flashsale.repository.TicketRepository;
+import com.example.flashsale.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Persists reserved orders to the database. The Redis reservation has already been
+ * taken when these methods run, so the database only has to claim the tickets whose
+ * IDs the reservation handed out. A batch is written in one transaction: one query
+ * for the users, one for the tickets, a single bulk UPDATE to claim them and batched
+ * purchase INSERTs.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PurchaseWriter {
+
+    private final PurchaseRepository purchaseRepository;
+    private final TicketRepository ticketRepository;
+    private final UserRepository userRepository;
+    private final PurchaseMetrics purchaseMetrics;
+
+    @Transactional
+    public void persistBatch(List<PendingOrder> orders) {
+        timeCommit();
+        long lookupStart = System.nanoTime();
+
+        // Entries can be redelivered after a crash, so skip orders that already made it
+        Set<String> persistedOrderIds = new HashSet<>(purchaseRepository.findExistingTransactionIds(
+                orders.stream().map(PendingOrder::getOrderId).toList()));
+        List<PendingOrder> newOrders = orders.stream()
+                .filter(order -> !persistedOrderIds.contains(order.getOrderId()))
+                .toList();
+
+        if (newOrders.isEmpty()) {
+            log.info("All {} orders already persisted. Skipping.", orders.size());
+            return;
+        }
+
+        Map<String, User> users = userRepository.findByUserIdIn(
+                        newOrders.stream().map(PendingOrder::getUserId).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(User::getUserId, Function.identity(), (first, second) -> first));
+
+        List<Long> ticketIds = newOrders.stream()
+                .flatMap(order -> order.getTicketIds().stream())
+                .toList();
+        Map<Long, Ticket> tickets = ticketRepository.findAllById(ticketIds).stream()
+                .collect(Collectors.toMap(Ticket::getId, Function.identity()));
+        purchaseMetrics.recordStage(PurchaseMetrics.STAGE_DB_LOOKUP, PurchaseMetrics.OUTCOME_SUCCESS, lookupStart);
+
+        // The reservations handed out exactly these IDs, so claim them in one statement
+        LocalDateTime now = LocalDateTime.now();
+        int claimed = purchaseMetrics.timeStage(PurchaseMetrics.STAGE_TICKET_CLAIM,
+                () -> ticketRepository.markSold(ticketIds, now));
+        if (claimed != ticketIds.size()) {
+            throw new IllegalStateException("Database inconsistency detected! Claimed " + claimed
+                    + " of " + ticketIds.size() + " reserved tickets");
+        }
+
+        List<Purchase> purchases = new ArrayList<>(ticketIds.size());
+        for (PendingOrder order : newOrders) {
+            User user = users.get(order.getUserId());
+            if (user == null) {
+                throw new ResourceNotFoundException("User not found with id: " + order.getUserId());
+            }
+
+            for (Long ticketId : order.getTicketIds()) {
+                Ticket ticket = tickets.get(ticketId);
+                purchases.add(Purchase.builder()
+                        .saleId(order.getSaleId())
+                        .user(user)
+                        .ticket(ticket)
+                        .transactionId(order.getOrderId())
+                        .amount(ticket.getPrice())
+                        .purchaseTime(now)
+                        .status("COMPLETED")
+                        .build());
+            }
+        }
+
+        // Flush so the batched INSERTs are timed here rather than as part of the commit
+        purchaseMetrics.timeStage(PurchaseMetrics.STAGE_INSERT, () -> {
+            purchaseRepository.saveAll(purchases);
+            purchaseRepository.flush();
+            return null;
+        });
+        purchaseMetrics.recordBatchSize(newOrders.size());
+        purchaseMetrics.countTickets("persisted", ticketIds.size());
+        log.debug("Persisted {} orders with {} tickets", newOrders.size(), ticketIds.size());
+    }
+
+    private void timeCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long commitStart;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitStart = System.nanoTime();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (commitStart != 0) {
+                    purchaseMetrics.recordStage(PurchaseMetrics.STAGE_COMMIT,
+                            status == STATUS_COMMITTED ? PurchaseMetrics.OUTCOME_SUCCESS : PurchaseMetrics.OUTCOME_ERROR,
+                            commitStart);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.exception.ResourceNotFoundException;
+import com.example.flashsale.metrics.PurchaseMetrics;
+import com.example.flashsale.model.ReservationStatus;
+import com.example.flashsale.model.dto.PendingOrder;
+import com.example.flashsale.model.dto.PurchaseRequest;
+import com.example.flashsale.model.dto.PurchaseResult;
+import com.example.flashsale.model.dto.ReservationResult;
+import com.example.flashsale.service.ReactivePurchaseService;
+import com.example.flashsale.service.StockReservationService;
+import com.example.flashsale.service.TicketService;
+import com.example.flashsale.service.UserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Non-blocking variant of the purchase flow. The reservation runs on Redisson's reactive
+ * API, and the JPA calls (user lookup and, without group commit, the order write) are
+ * handed to the bounded JPA scheduler, so no request thread waits on Redis or the database.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReactivePurchaseServiceImpl implements ReactivePurchaseService {
+
+    private static final String WRITE_BEHIND_MODE = "write-behind";
+
+    private final UserService userService;
+    private final TicketService ticketService;
+    private final StockReservationService stockReservationService;
+    private final PurchaseWriter purchaseWriter;
+    private final GroupCommitPurchaseWriter groupCommitPurchaseWriter;
+    private final Scheduler jpaScheduler;
+    private final PurchaseMetrics purchaseMetrics;
+
+    @Value("${flash-sale.purchase.mode}")
+    private String purchaseMode;
+
+    @Value("${flash-sale.group-commit.enabled}")
+    private boolean groupCommitEnabled;
+
+    @Override
+    public Mono<PurchaseResult> purchaseTickets(long saleId, PurchaseRequest purchaseRequest) {
+        return Mono.defer(() -> {
+            long start = purchaseMetrics.startPurchase();
+            AtomicReference<PurchaseResult> result = new AtomicReference<>();
+            return processPurchase(saleId, purchaseRequest)
+                    .doOnNext(result::set)
+                    .doFinally(signal -> purchaseMetrics.endPurchase(start, result.get()));
+        });
+    }
+
+    private Mono<PurchaseResult> processPurchase(long saleId, PurchaseRequest purchaseRequest) {
+        String userId = purchaseRequest.getUserId();
+        int quantity = purchaseRequest.getQuantity();
+        String orderId = UUID.randomUUID().toString();
+
+        // Post-sellout requests are rejected from the local flag without any I/O
+        if (ticketService.isSoldOut(saleId)) {
+            return Mono.just(PurchaseResult.rejected(ReservationStatus.SOLD_OUT));
+        }
+
+        boolean writeBehind = WRITE_BEHIND_MODE.equals(purchaseMode);
+
+        return Mono.fromCallable(() -> userService.getUserByUserId(userId))
+                .subscribeOn(jpaScheduler)
+                .flatMap(user -> user.isPresent()
+                        ? Mono.just(user.get())
+                        : Mono.error(new ResourceNotFoundException("User not found with id: " + userId)))
+                .flatMap(user -> writeBehind
+                        ? stockReservationService.reserveAndJournalReactive(saleId, orderId, userId, quantity)
+                        : stockReservationService.reserveReactive(saleId, orderId, userId, quantity))
+                .flatMap(reservation -> {
+                    if (!reservation.isReserved()) {
+                        log.warn("Reservation rejected for user: {}. Requested: {}, Status: {}",
+                                userId, quantity, reservation.getStatus());
+                        return Mono.just(PurchaseResult.rejected(reservation.getStatus()));
+                    }
+
+                    if (writeBehind) {
+                        log.info("Accepted order {} for {} tickets for user: {}", orderId, quantity, userId);
+                        return Mono.just(PurchaseResult.pending(orderId));
+                    }
+
+                    return persist(saleId, orderId, userId, quantity, reservation);
+                });
+    }
+
+    private Mono<PurchaseResult> persist(long saleId, String orderId, String userId, int quantity,
+                                       ReservationResult reservation) {
+        PendingOrder order = PendingOrder.builder()
+                .orderId(orderId)
+                .saleId(saleId)
+                .userId(userId)
+                .quantity(quantity)
+                .ticketIds(reservation.getTicketIds())
+                .build();
+
+        Mono<Void> write = groupCommitEnabled
+                ? Mono.fromFuture(() -> groupCommitPurchaseWriter.submit(order))
+                : Mono.<Void>fromRunnable(() -> purchaseWriter.persistBatch(List.of(order))).subscribeOn(jpaScheduler);
+
+        // Claim the order before writing it, so the reconciler cannot release it mid-write; orders
+        // sold from a stock lease come back claimed
+        Mono<Boolean> claim = reservation.isCommitting()
+                ? Mono.just(true)
+                : stockReservationService.beginCommitReactive(orderId);
+        return claim
+                .flatMap(claimed -> {
+                    if (!claimed) {
+                        log.warn("Order {} was released before it could be committed", orderId);
+                        return Mono.just(PurchaseResult.failed(orderId));
+                    }
+
+                    return write
+                            .then(Mono.fromSupplier(() -> {
+                                stockReservationService.settle(saleId, orderId);
+                                log.info("Successfully processed purchase of {} tickets for user: {}", quantity, userId);
+                                return PurchaseResult.completed(orderId);
+                            }))
+                            .onErrorResume(e -> {
+                                log.error("Error processing purchase for user: {}", userId, e);
+                                // Ensure we roll back the Redis reservation if an error occurs
+                                return stockReservationService.rollbackCommitReactive(saleId, orderId, userId,
+                                                reservation.getTicketIds())
+                                        .thenReturn(PurchaseResult.failed(orderId));
+                            });
+                });
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.metrics.ReconciliationMetrics;
+import com.example.flashsale.model.OrderStatus;
+import com.example.flashsale.model.Sale;
+import com.example.flashsale.model.dto.ReconciliationReport;
+import com.example.flashsale.repository.PurchaseRepository;
+import com.example.flashsale.repository.TicketRepository;
+import com.example.flashsale.service.ReconciliationService;
+import com.example.flashsale.service.SaleService;
+import com.example.flashsale.service.StockReservationService;
+import com.example.flashsale.service.TicketService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repairs stock leaked by synchronous purchases that reserved in Redis but never reached
+ * the database, e.g. because the node died in between. Every synchronous reservation is
+ * journaled with its reservation time until the order commits, so a sweep only looks at
+ * reservations older than the stale threshold: those whose order made it to the database
+ * are settled, the rest are released back to stock. Releasing is guarded by the order's
+ * status in Redis, so a sweep never races a request rolling back its own reservation, and
+ * a request claims its order (COMMITTING) with a commit deadline before writing it, so a
+ * sweep never releases tickets that are being sold. A claimed order is only released once
+ * its deadline has passed and a fresh database check still does not find it.
+ * Write-behind orders are recovered through the order stream instead.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReconciliationServiceImpl implements ReconciliationService {
+
+    private final RedissonClient redissonClient;
+    private final SaleService saleService;
+    private final TicketService ticketService;
+    private final StockReservationService stockReservationService;
+    private final StockShards stockShards;
+    private final PurchaseRepository purchaseRepository;
+    private final TicketRepository ticketRepository;
+    private final ReconciliationMetrics reconciliationMetrics;
+
+    @Value("${flash-sale.reconciler.enabled}")
+    private boolean enabled;
+
+    @Value("${flash-sale.reconciler.interval-ms}")
+    private long intervalMs;
+
+    @Value("${flash-sale.reconciler.stale-after-ms}")
+    private long staleAfterMs;
+
+    @Value("${flash-sale.reconciler.batch-size}")
+    private int batchSize;
+
+    @Value("${flash-sale.redis.order-key-prefix}")
+    private String orderKeyPrefix;
+
+    @Value("${flash-sale.redis.reconciler-lease-key}")
+    private String leaseKey;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::scheduledSweep, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void scheduledSweep() {
+        try {
+            // One node per interval sweeps; a manual run or an overlapping sweep is still safe
+            boolean leader = redissonClient.getBucket(leaseKey, StringCodec.INSTANCE)
+                    .setIfAbsent("1", Duration.ofMillis(Math.max(1, intervalMs - 100)));
+            if (leader) {
+                reconcile();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Inventory reconciliation sweep failed", e);
+        }
+    }
+
+    @Override
+    public ReconciliationReport reconcile() {
+        long start = System.nanoTime();
+        ReconciliationReport report = ReconciliationReport.builder()
+                .inFlight(new HashMap<>())
+                .stockDrift(new HashMap<>())
+                .build();
+
+        for (Sale sale : saleService.getAllSales()) {
+            reconcileSale(sale.getId(), report);
+        }
+
+        reconciliationMetrics.recordSweep(start);
+        if (report.getSettled() > 0 || report.getReleased() > 0) {
+            log.warn("Reconciliation settled {} and released {} stale reservations",
+                    report.getSettled(), report.getReleased());
+        }
+        return report;
+    }
+
+    private void reconcileSale(long saleId, ReconciliationReport report) {
+        RScoredSortedSet<String> journal = redissonClient.getScoredSortedSet(
+                stockShards.reservationJournalKey(saleId), StringCodec.INSTANCE);
+        // Reservations are timestamped by the Redis clock, so their age is measured by it too
+        List<String> staleOrderIds;
+        do {
+            staleOrderIds = stockReservationService.findReservationsOlderThan(saleId, staleAfterMs, batchSize);
+            if (!staleOrderIds.isEmpty()) {
+                repair(saleId, journal, staleOrderIds, report);
+            }
+        } while (staleOrderIds.size() == batchSize);
+
+        // Reservations in flight hold stock that the database still counts as unsold (held
+        // tickets are flagged and not counted), so a drift that stays above the in-flight
+        // count points at a leak the journal did not see
+        long inFlight = journal.size();
+        long drift = ticketRepository.countAvailableTicketsBySaleId(saleId) - ticketService.readAvailableTickets(saleId);
+        report.getInFlight().put(saleId, inFlight);
+        report.getStockDrift().put(saleId, drift);
+        reconciliationMetrics.recordSale(saleId, inFlight, drift);
+    }
+
+    private void repair(long saleId, RScoredSortedSet<String> journal, Collection<String> orderIds,
+                        ReconciliationReport report) {
+        RBatch batch = redissonClient.createBatch();
+        Map<String, RFuture<Map<String, String>>> orderFutures = new HashMap<>();
+        for (String orderId : orderIds) {
+            orderFutures.put(orderId, batch.<String, String>getMap(orderKeyPrefix + orderId, StringCodec.INSTANCE)
+                    .readAllMapAsync());
+        }
+        batch.execute();
+
+        Set<String> persisted = new HashSet<>(purchaseRepository.findExistingTransactionIds(orderIds));
+
+        long settled = 0;
+        long released = 0;
+        List<String> cleared = new ArrayList<>();
+        for (String orderId : orderIds) {
+            Map<String, String> order = orderFutures.get(orderId).toCompletableFuture().join();
+            String status = order.get("status");
+
+            if (persisted.contains(orderId)) {
+                // Committed, but the request never got to settle it
+                stockReservationService.settle(saleId, orderId);
+                cleared.add(orderId);
+                settled++;
+            } else if (OrderStatus.PENDING.name().equals(status)) {
+                // Never claimed for its database write; the release makes a late claim fail
+                if (stockReservationService.release(saleId, orderId, order.get("userId"),
+                        parseTicketIds(order.get("ticketIds")))) {
+                    log.warn("Released orphaned reservation {} of sale {} for user {}", orderId, saleId, order.get("userId"));
+                    released++;
+                }
+            } else if (OrderStatus.COMMITTING.name().equals(status)) {
+                // The writer claimed it and died or is still writing. Its transaction times out before
+                // its commit deadline, so once the deadline has passed by the Redis clock the write has
+                // either landed or never will; the rollback itself checks the deadline
+                if (purchaseRepository.existsByTransactionId(orderId)) {
+                    stockReservationService.settle(saleId, orderId);
+                    cleared.add(orderId);
+                    settled++;
+                } else if (stockReservationService.rollbackExpiredCommit(saleId, orderId, order.get("userId"),
+                        parseTicketIds(order.get("ticketIds")))) {
+                    log.warn("Released abandoned commit {} of sale {} for user {}", orderId, saleId, order.get("userId"));
+                    released++;
+                }
+            } else {
+                // Expired or already finished elsewhere; nothing left to repair
+                cleared.add(orderId);
+            }
+        }
+
+        // Settling is asynchronous, so drop the entries here before the next batch is read
+        if (!cleared.isEmpty()) {
+            journal.removeAll(cleared);
+        }
+
+        report.setSettled(report.getSettled() + settled);
+        report.setReleased(report.getReleased() + released);
+        reconciliationMetrics.countOrders("settled", settled);
+        reconciliationMetrics.countOrders("released", released);
+    }
+
+    private List<Long> parseTicketIds(String joinedIds) {
+        List<Long> ticketIds = new ArrayList<>();
+        for (String ticketId : joinedIds.split(",")) {
+            ticketIds.add(Long.valueOf(ticketId));
+        }
+        return ticketIds;
+    }
+}
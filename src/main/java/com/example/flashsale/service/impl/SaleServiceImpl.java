@@ -0,0 +1,119 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.exception.ResourceNotFoundException;
+import com.example.flashsale.model.Sale;
+import com.example.flashsale.model.dto.CreateSaleRequest;
+import com.example.flashsale.repository.SaleRepository;
+import com.example.flashsale.service.SaleService;
+import com.example.flashsale.service.TicketService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Manages sales and their inventories. Only the ticket total of a sale changes after it
+ * is created, through imports, so lookups on the purchase path are answered from a local
+ * map instead of the database.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SaleServiceImpl implements SaleService {
+
+    private static final BigDecimal DEFAULT_PRICE = BigDecimal.valueOf(99.99);
+
+    private final SaleRepository saleRepository;
+    private final TicketService ticketService;
+
+    private final Map<Long, Sale> sales = new ConcurrentHashMap<>();
+
+    @Value("${flash-sale.total-tickets}")
+    private int totalTickets;
+
+    @Value("${flash-sale.provisioning.startup-file}")
+    private String startupFile;
+
+    private volatile long defaultSaleId;
+
+    @PostConstruct
+    public void init() {
+        // The default sale backs the original single-sale endpoints
+        Sale defaultSale = saleRepository.findBySku(Sale.DEFAULT_SKU)
+                .orElseGet(() -> saleRepository.save(Sale.builder()
+                        .sku(Sale.DEFAULT_SKU)
+                        .name("Flash Sale")
+                        .price(DEFAULT_PRICE)
+                        // A startup file provides the default inventory instead of generated tickets
+                        .totalTickets(StringUtils.hasText(startupFile) ? 0 : totalTickets)
+                        .createdAt(LocalDateTime.now())
+                        .build()));
+        defaultSaleId = defaultSale.getId();
+
+        for (Sale sale : saleRepository.findAll()) {
+            ticketService.initializeTickets(sale);
+            sales.put(sale.getId(), sale);
+        }
+    }
+
+    @Override
+    public Optional<Sale> createSale(CreateSaleRequest request) {
+        if (saleRepository.findBySku(request.getSku()).isPresent()) {
+            log.warn("Sale already exists with sku: {}", request.getSku());
+            return Optional.empty();
+        }
+
+        Sale sale = saleRepository.save(Sale.builder()
+                .sku(request.getSku())
+                .name(request.getName())
+                .price(request.getPrice())
+                .totalTickets(request.getTotalTickets())
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        ticketService.initializeTickets(sale);
+        sales.put(sale.getId(), sale);
+        log.info("Created sale {} for sku: {} with {} tickets", sale.getId(), sale.getSku(), sale.getTotalTickets());
+        return Optional.of(sale);
+    }
+
+    @Override
+    public Sale getSale(long saleId) {
+        // Sales created on another node are picked up from the database on first use
+        Sale sale = sales.computeIfAbsent(saleId, id -> saleRepository.findById(id).orElse(null));
+        if (sale == null) {
+            throw new ResourceNotFoundException("Sale not found with id: " + saleId);
+        }
+        return sale;
+    }
+
+    @Override
+    public List<Sale> getAllSales() {
+        return saleRepository.findAll();
+    }
+
+    @Override
+    public long getDefaultSaleId() {
+        return defaultSaleId;
+    }
+
+    @Override
+    @Transactional
+    public void addTickets(long saleId, int count) {
+        saleRepository.addTickets(saleId, count);
+        sales.computeIfPresent(saleId, (id, sale) -> {
+            sale.setTotalTickets(sale.getTotalTickets() + count);
+            return sale;
+        });
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.model.dto.StockUpdate;
+import com.example.flashsale.service.StockFeedService;
+import com.example.flashsale.service.TicketService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pushes stock changes to clients over Server-Sent Events instead of having them poll.
+ * The node subscribes once to the channel the reservation scripts publish sale IDs to.
+ * A publish only marks the sale as changed; once per interval the node reads the stock of
+ * each changed sale and hands the update to all of that sale's clients, so a burst of
+ * purchases costs one read and one event per client. The read goes to Redis rather than
+ * the coalesced snapshot, which may predate the change and would leave clients on a
+ * stale count until the next one.
+ *
+ * Each client holds only its latest undelivered update. An update that arrives while an
+ * earlier one is still being written replaces it, so a slow client skips to the current
+ * stock instead of queueing a backlog. Writes run on virtual threads and an idle
+ * connection holds no thread at all.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockFeedServiceImpl implements StockFeedService {
+
+    private static final String EVENT_NAME = "stock";
+    private static final Set<DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("heartbeat").build();
+
+    private final RedissonClient redissonClient;
+    private final TicketService ticketService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${flash-sale.redis.stock-change-channel}")
+    private String stockChangeChannel;
+
+    @Value("${flash-sale.stock-feed.interval-ms}")
+    private long intervalMs;
+
+    @Value("${flash-sale.stock-feed.heartbeat-ms}")
+    private long heartbeatMs;
+
+    @Value("${flash-sale.stock-feed.max-subscribers}")
+    private int maxSubscribers;
+
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final Map<Long, Long> lastPublished = new ConcurrentHashMap<>();
+    private final Set<Long> changedSales = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private RTopic topic;
+    private int listenerId;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService writers;
+
+    @PostConstruct
+    public void start() {
+        writers = Executors.newVirtualThreadPerTaskExecutor();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::publishChanges, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+
+        topic = redissonClient.getTopic(stockChangeChannel, StringCodec.INSTANCE);
+        listenerId = topic.addListener(String.class, (channel, saleId) -> {
+            long id = Long.parseLong(saleId);
+            if (subscribers.containsKey(id)) {
+                changedSales.add(id);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        topic.removeListener(listenerId);
+        scheduler.shutdownNow();
+        subscribers.values().forEach(sale -> sale.forEach(subscriber -> subscriber.emitter.complete()));
+        writers.shutdownNow();
+    }
+
+    @Override
+    public Optional<SseEmitter> subscribe(long saleId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return Optional.empty();
+        }
+
+        // No timeout: the connection stays open until the client leaves or a heartbeat fails
+        SseEmitter emitter = new SseEmitter(0L);
+        Subscriber subscriber = new Subscriber(emitter);
+        subscribers.computeIfAbsent(saleId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+
+        Runnable remove = () -> unsubscribe(saleId, subscriber);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+
+        // Start the client from the current stock rather than waiting for the next change
+        subscriber.offer(event(currentStock(saleId)));
+        return Optional.of(emitter);
+    }
+
+    private void unsubscribe(long saleId, Subscriber subscriber) {
+        Set<Subscriber> sale = subscribers.get(saleId);
+        if (sale != null && sale.remove(subscriber)) {
+            subscriberCount.decrementAndGet();
+        }
+    }
+
+    private void publishChanges() {
+        try {
+            for (Long saleId : changedSales) {
+                changedSales.remove(saleId);
+                Set<Subscriber> sale = subscribers.get(saleId);
+                if (sale == null || sale.isEmpty()) {
+                    continue;
+                }
+
+                StockUpdate update = currentStock(saleId);
+                Long previous = lastPublished.put(saleId, update.getAvailableTickets());
+                if (previous != null && previous == update.getAvailableTickets()) {
+                    continue;
+                }
+
+                // Serialized once, written to every client as is
+                Set<DataWithMediaType> event = event(update);
+                sale.forEach(subscriber -> subscriber.offer(event));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish stock changes", e);
+        }
+    }
+
+    private void sendHeartbeats() {
+        // Keeps proxies from closing idle feeds and finds clients that left without closing
+        subscribers.values().forEach(sale -> sale.forEach(Subscriber::heartbeat));
+    }
+
+    private StockUpdate currentStock(long saleId) {
+        long available = ticketService.readAvailableTickets(saleId);
+        return StockUpdate.builder()
+                .saleId(saleId)
+                .availableTickets(available)
+                .soldOut(available == 0)
+                .build();
+    }
+
+    private Set<DataWithMediaType> event(StockUpdate update) {
+        try {
+            return SseEmitter.event()
+                    .name(EVENT_NAME)
+                    .data(objectMapper.writeValueAsString(update))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize stock update", e);
+        }
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final AtomicReference<Set<DataWithMediaType>> latest = new AtomicReference<>();
+        private final AtomicBoolean writing = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void offer(Set<DataWithMediaType> event) {
+            latest.set(event);
+            if (writing.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        private void heartbeat() {
+            // Only when nothing is waiting: a pending stock event keeps the connection alive just as well
+            if (latest.compareAndSet(null, HEARTBEAT) && writing.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Set<DataWithMediaType> event = latest.getAndSet(null);
+                if (event == null) {
+                    writing.set(false);
+                    // An offer may have landed after the check and seen the flag still set
+                    if (latest.get() == null || !writing.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    emitter.completeWithError(e);
+                    return;
+                }
+            }
+        }
+    }
+}
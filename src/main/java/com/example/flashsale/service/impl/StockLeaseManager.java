@@ -0,0 +1,556 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.model.ReservationStatus;
+import com.example.flashsale.model.Sale;
+import com.example.flashsale.model.dto.ReservationResult;
+import com.example.flashsale.service.SaleService;
+import com.example.flashsale.util.LuaScript;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sells stock from blocks this node leases from Redis instead of reserving in Redis on
+ * every purchase. A purchase takes its tickets from the lease with a compare-and-set on a
+ * local counter; the orders sold meanwhile are recorded by one script call per batch,
+ * which also applies the per-user limit, so concurrent buyers share a round trip instead
+ * of each contending for the shard counters. The leased ticket IDs stay in a per-node set
+ * in Redis and an order is only recorded while its tickets are still in that set, so a
+ * lease that was given back or reclaimed can never be sold twice.
+ *
+ * A purchase still waits for its batch to be recorded, since the per-user limit is only
+ * decided there; that batch also claims the orders for their database write, so a leased
+ * purchase makes one shared round trip before writing instead of a reservation and a
+ * claim of its own. The wait shows in the {@code reserve} stage of the purchase timer.
+ *
+ * Blocks grow and shrink so that one lasts about the target lease time at the current
+ * sales rate, and shrink to what a refill could actually claim when the shards run short.
+ * A lease is renewed while the node lives and given back on shutdown and when the stock
+ * outside leases drops below the return threshold, so the last tickets are not stranded
+ * on a quiet node; the lease of a node that died is returned by another node once it
+ * expires by the Redis clock. Purchases the lease cannot serve fall back to reserving in Redis.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StockLeaseManager {
+
+    // Code commit_leased.lua answers for an order whose tickets are no longer leased to this node
+    private static final long LEASE_LOST = 3;
+    private static final int EXPIRED_LEASES_PER_SWEEP = 100;
+
+    private final RedissonClient redissonClient;
+    private final StockShards stockShards;
+    private final SaleService saleService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${flash-sale.stock.leasing.enabled}")
+    private boolean enabled;
+
+    @Value("${flash-sale.stock.leasing.min-block-size}")
+    private int minBlockSize;
+
+    @Value("${flash-sale.stock.leasing.max-block-size}")
+    private int maxBlockSize;
+
+    @Value("${flash-sale.stock.leasing.target-lease-ms}")
+    private long targetLeaseMs;
+
+    @Value("${flash-sale.stock.leasing.return-below}")
+    private long returnBelow;
+
+    @Value("${flash-sale.stock.leasing.ttl-ms}")
+    private long ttlMs;
+
+    @Value("${flash-sale.stock.leasing.renew-interval-ms}")
+    private long renewIntervalMs;
+
+    @Value("${flash-sale.stock.leasing.max-commit-batch-size}")
+    private int maxCommitBatchSize;
+
+    @Value("${flash-sale.purchase.max-tickets-per-user}")
+    private int maxTicketsPerUser;
+
+    @Value("${flash-sale.purchase.commit-lease-ms}")
+    private long commitLeaseMs;
+
+    @Value("${flash-sale.write-behind.order-ttl-seconds}")
+    private long orderTtlSeconds;
+
+    @Value("${flash-sale.redis.order-key-prefix}")
+    private String orderKeyPrefix;
+
+    @Value("${flash-sale.redis.stock-change-channel}")
+    private String stockChangeChannel;
+
+    @Value("${flash-sale.redis.stock-lease-expiry-lease-key}")
+    private String expiryLeaseKey;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<Long, SaleLease> leases = new ConcurrentHashMap<>();
+
+    private LuaScript leaseScript;
+    private LuaScript commitScript;
+    private LuaScript returnScript;
+    private LuaScript renewScript;
+    private LuaScript dueScript;
+    // Refills, renewals and returns all run here, so a lease only changes hands on this thread
+    private ScheduledExecutorService scheduler;
+    private Counter leasedReservations;
+    private Counter directReservations;
+    private volatile boolean stopped;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        leaseScript = new LuaScript(redissonClient, "scripts/lease.lua");
+        commitScript = new LuaScript(redissonClient, "scripts/commit_leased.lua");
+        returnScript = new LuaScript(redissonClient, "scripts/return_lease.lua");
+        renewScript = new LuaScript(redissonClient, "scripts/renew_lease.lua");
+        dueScript = new LuaScript(redissonClient, "scripts/due.lua");
+        leasedReservations = reservationCounter("lease");
+        directReservations = reservationCounter("redis");
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::maintainLeases, renewIntervalMs, renewIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Stock leasing enabled for node {}", nodeId);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+
+        stopped = true;
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        for (SaleLease lease : leases.values()) {
+            try {
+                giveBack(lease);
+            } catch (RuntimeException e) {
+                log.warn("Failed to return the stock lease of sale {}; it is reclaimed once it expires", lease.saleId, e);
+            }
+        }
+    }
+
+    /**
+     * Reserves from this node's lease and claims the order for its database write. Returns null
+     * when the lease cannot serve the purchase, in which case the caller reserves in Redis directly.
+     */
+    public ReservationResult reserve(long saleId, String orderId, String userId, int quantity) {
+        try {
+            return reserveAsync(saleId, orderId, userId, quantity).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reserves from this node's lease. Completes with null when the lease cannot serve the
+     * purchase, in which case the caller reserves in Redis directly.
+     */
+    public CompletableFuture<ReservationResult> reserveAsync(long saleId, String orderId, String userId, int quantity) {
+        if (!enabled || stopped) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        SaleLease lease = leases.computeIfAbsent(saleId, SaleLease::new);
+        List<Long> ticketIds = lease.take(quantity);
+        requestRefillIfLow(lease);
+        if (ticketIds == null) {
+            directReservations.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        LeasedOrder order = new LeasedOrder(orderId, userId, quantity, ticketIds, new CompletableFuture<>());
+        lease.pending.add(order);
+        commit(lease);
+        return order.result;
+    }
+
+    private void requestRefillIfLow(SaleLease lease) {
+        if (!lease.draining && lease.available.get() < lease.lowWater && lease.refillQueued.compareAndSet(false, true)) {
+            schedule(() -> refill(lease));
+        }
+    }
+
+    private void commit(SaleLease lease) {
+        // Like a group commit: one batch per sale is in flight, and orders sold while it is
+        // go out together in the next one
+        while (!lease.pending.isEmpty() && lease.committing.compareAndSet(false, true)) {
+            List<LeasedOrder> batch = new ArrayList<>();
+            LeasedOrder order;
+            while (batch.size() < maxCommitBatchSize && (order = lease.pending.poll()) != null) {
+                batch.add(order);
+            }
+            if (batch.isEmpty()) {
+                lease.committing.set(false);
+                continue;
+            }
+
+            try {
+                commitScript.<List<Object>>evalReactive(RScript.ReturnType.MULTI,
+                                commitKeys(lease.saleId, batch), commitArgs(lease.saleId, batch))
+                        .toFuture()
+                        .whenComplete((reply, error) -> {
+                            try {
+                                complete(lease, batch, reply, error);
+                            } finally {
+                                lease.committing.set(false);
+                                commit(lease);
+                            }
+                        });
+                return;
+            } catch (RuntimeException e) {
+                lease.committing.set(false);
+                fail(batch, e);
+            }
+        }
+    }
+
+    private void complete(SaleLease lease, List<LeasedOrder> batch, List<Object> reply, Throwable error) {
+        if (error != null) {
+            // The outcome is unknown, so the tickets are not put back; any the script did not
+            // record are still in the lease set and go back to stock with the lease
+            fail(batch, error);
+            return;
+        }
+
+        boolean lost = false;
+        for (int i = 0; i < batch.size(); i++) {
+            LeasedOrder order = batch.get(i);
+            long code = (Long) reply.get(i);
+            if (code == LEASE_LOST) {
+                lost = true;
+                order.result.complete(null);
+                continue;
+            }
+
+            ReservationStatus status = ReservationStatus.fromCode(code);
+            if (status == ReservationStatus.OK) {
+                leasedReservations.increment();
+                order.result.complete(new ReservationResult(status, order.ticketIds, true));
+            } else {
+                lease.add(order.ticketIds);
+                order.result.complete(new ReservationResult(status, List.of()));
+            }
+        }
+
+        if (lost) {
+            // Reclaimed or reset behind this node's back; start over from a fresh lease
+            log.warn("Stock lease of sale {} was lost. Returning what is left of it.", lease.saleId);
+            schedule(() -> giveBack(lease));
+        }
+    }
+
+    private void fail(List<LeasedOrder> batch, Throwable error) {
+        for (LeasedOrder order : batch) {
+            order.result.completeExceptionally(error);
+        }
+    }
+
+    private void refill(SaleLease lease) {
+        try {
+            if (stopped || lease.draining) {
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+            resize(lease, now);
+            int wanted = lease.blockSize - lease.available.get();
+            if (wanted <= 0) {
+                return;
+            }
+
+            List<Long> claimed = claim(lease.saleId, wanted);
+            if (!claimed.isEmpty()) {
+                lease.held = true;
+                lease.refilledAt = now;
+                lease.add(claimed);
+            }
+            if (claimed.size() < wanted) {
+                // The shards are short: keep what was claimed and ask for no more than that next
+                // time. Returning the lease is left to maintain(), once stock outside leases
+                // drops below the threshold, so nodes do not claim and return in turns
+                lease.blockSize = Math.max(1, claimed.size());
+                lease.lowWater = Math.max(1, lease.blockSize / 4);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to refill the stock lease of sale {}", lease.saleId, e);
+        } finally {
+            lease.refillQueued.set(false);
+        }
+    }
+
+    private void resize(SaleLease lease, long now) {
+        // Grow the block when the last one drained well within the target, shrink it when it
+        // lasted well beyond, so fast sales need few refills and slow ones strand little stock
+        if (lease.refilledAt > 0) {
+            long lasted = now - lease.refilledAt;
+            if (lasted < targetLeaseMs / 2) {
+                lease.blockSize = Math.min(lease.blockSize * 2, maxBlockSize);
+            } else if (lasted > targetLeaseMs * 2) {
+                lease.blockSize = Math.max(lease.blockSize / 2, minBlockSize);
+            }
+        }
+        lease.lowWater = Math.max(1, lease.blockSize / 4);
+    }
+
+    private List<Long> claim(long saleId, int wanted) {
+        // Start at this node's home shard and take from the next ones while it is short
+        List<Long> claimed = new ArrayList<>(wanted);
+        int shardCount = stockShards.getShardCount();
+        int homeShard = stockShards.homeShard(nodeId);
+        for (int attempt = 0; attempt < shardCount && claimed.size() < wanted; attempt++) {
+            int shard = (homeShard + attempt) % shardCount;
+            List<Object> ticketIds = leaseScript.eval(RScript.ReturnType.MULTI,
+                    List.of(stockShards.stockKey(saleId, shard), stockShards.poolKey(saleId, shard),
+                            stockShards.leaseKey(saleId, nodeId), stockShards.leaseRegistryKey(saleId),
+                            stockShards.leasedStockKey(saleId)),
+                    String.valueOf(wanted - claimed.size()), nodeId, String.valueOf(ttlMs));
+            for (Object ticketId : ticketIds) {
+                claimed.add(Long.valueOf(ticketId.toString()));
+            }
+        }
+        return claimed;
+    }
+
+    private void giveBack(SaleLease lease) {
+        lease.drop();
+        if (!lease.held) {
+            return;
+        }
+
+        long returned = returnLease(lease.saleId, nodeId, false);
+        lease.held = false;
+        lease.refilledAt = 0;
+        log.info("Returned {} leased tickets of sale {} to stock", returned, lease.saleId);
+    }
+
+    private long returnLease(long saleId, String leaseNodeId, boolean onlyIfExpired) {
+        // Stock is fungible across shards, so returned tickets go to the node's home shard
+        int shard = stockShards.homeShard(leaseNodeId);
+        return returnScript.eval(RScript.ReturnType.INTEGER,
+                List.of(stockShards.stockKey(saleId, shard), stockShards.poolKey(saleId, shard),
+                        stockShards.leaseKey(saleId, leaseNodeId), stockShards.leaseRegistryKey(saleId),
+                        stockShards.leasedStockKey(saleId)),
+                leaseNodeId, onlyIfExpired ? "1" : "0");
+    }
+
+    private void maintainLeases() {
+        try {
+            for (SaleLease lease : leases.values()) {
+                maintain(lease);
+            }
+
+            // One node per interval returns the leases of nodes that stopped renewing them
+            boolean leader = redissonClient.getBucket(expiryLeaseKey, StringCodec.INSTANCE)
+                    .setIfAbsent("1", Duration.ofMillis(Math.max(1, renewIntervalMs - 100)));
+            if (leader) {
+                returnExpiredLeases();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Stock lease maintenance failed", e);
+        }
+    }
+
+    private void maintain(SaleLease lease) {
+        RBatch batch = redissonClient.createBatch();
+        List<RFuture<Long>> shardStock = new ArrayList<>(stockShards.getShardCount());
+        for (int shard = 0; shard < stockShards.getShardCount(); shard++) {
+            shardStock.add(batch.getAtomicLong(stockShards.stockKey(lease.saleId, shard)).getAsync());
+        }
+        batch.execute();
+
+        long unleased = 0;
+        for (RFuture<Long> stock : shardStock) {
+            unleased += Math.max(0, stock.toCompletableFuture().join());
+        }
+        if (unleased < returnBelow) {
+            if (!lease.draining) {
+                log.info("Stock of sale {} is nearly exhausted. Returning its lease.", lease.saleId);
+                lease.draining = true;
+            }
+            giveBack(lease);
+            return;
+        }
+        lease.draining = false;
+
+        if (!lease.held) {
+            return;
+        }
+        // Renewed by the Redis clock, the clock the expiry sweep compares against
+        long renewed = renewScript.eval(RScript.ReturnType.INTEGER, List.of(stockShards.leaseRegistryKey(lease.saleId)),
+                nodeId, String.valueOf(ttlMs));
+        if (renewed == 0) {
+            // Reclaimed after this node failed to renew in time, or dropped by a reseed
+            log.warn("Stock lease of sale {} expired. Dropping it.", lease.saleId);
+            lease.drop();
+            lease.held = false;
+            lease.refilledAt = 0;
+        }
+    }
+
+    private void returnExpiredLeases() {
+        for (Sale sale : saleService.getAllSales()) {
+            List<Object> expired = dueScript.eval(RScript.ReturnType.MULTI,
+                    List.of(stockShards.leaseRegistryKey(sale.getId())), "0", String.valueOf(EXPIRED_LEASES_PER_SWEEP));
+            for (Object member : expired) {
+                String expiredNodeId = member.toString();
+                long returned = returnLease(sale.getId(), expiredNodeId, true);
+                if (returned >= 0) {
+                    log.warn("Returned {} tickets of sale {} leased by unresponsive node {}",
+                            returned, sale.getId(), expiredNodeId);
+                }
+            }
+        }
+    }
+
+    private void schedule(Runnable task) {
+        try {
+            scheduler.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the leases are being given back anyway
+        }
+    }
+
+    private List<Object> commitKeys(long saleId, List<LeasedOrder> batch) {
+        List<Object> keys = new ArrayList<>(batch.size() + 4);
+        keys.add(stockShards.leaseKey(saleId, nodeId));
+        keys.add(stockShards.userPurchaseKey(saleId));
+        keys.add(stockShards.reservationJournalKey(saleId));
+        keys.add(stockShards.leasedStockKey(saleId));
+        for (LeasedOrder order : batch) {
+            keys.add(orderKeyPrefix + order.orderId);
+        }
+        return keys;
+    }
+
+    private Object[] commitArgs(long saleId, List<LeasedOrder> batch) {
+        List<Object> args = new ArrayList<>(batch.size() * 4 + 5);
+        args.add(String.valueOf(maxTicketsPerUser));
+        args.add(String.valueOf(orderTtlSeconds));
+        args.add(String.valueOf(saleId));
+        args.add(stockChangeChannel);
+        args.add(String.valueOf(commitLeaseMs));
+        for (LeasedOrder order : batch) {
+            args.add(order.orderId);
+            args.add(order.userId);
+            args.add(String.valueOf(order.quantity));
+            args.add(joinIds(order.ticketIds));
+        }
+        return args.toArray();
+    }
+
+    private String joinIds(List<Long> ticketIds) {
+        StringBuilder joined = new StringBuilder();
+        for (Long ticketId : ticketIds) {
+            if (!joined.isEmpty()) {
+                joined.append(',');
+            }
+            joined.append(ticketId);
+        }
+        return joined.toString();
+    }
+
+    private Counter reservationCounter(String source) {
+        return Counter.builder("flashsale.stock.lease.reservations")
+                .description("Reservations attempted with stock leasing, by where the stock came from")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    private final class SaleLease {
+
+        private final long saleId;
+        // Tickets on hand; the queue always holds at least as many IDs as the counter says
+        private final AtomicInteger available = new AtomicInteger();
+        private final Queue<Long> ticketIds = new ConcurrentLinkedQueue<>();
+        private final Queue<LeasedOrder> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean committing = new AtomicBoolean();
+        private final AtomicBoolean refillQueued = new AtomicBoolean();
+        private volatile int lowWater;
+        private volatile boolean draining;
+        // Only touched on the scheduler thread
+        private int blockSize;
+        private long refilledAt;
+        private boolean held;
+
+        private SaleLease(long saleId) {
+            this.saleId = saleId;
+            this.blockSize = minBlockSize;
+            this.lowWater = Math.max(1, minBlockSize / 4);
+        }
+
+        private List<Long> take(int quantity) {
+            int current;
+            do {
+                current = available.get();
+                if (current < quantity) {
+                    return null;
+                }
+            } while (!available.compareAndSet(current, current - quantity));
+
+            List<Long> taken = new ArrayList<>(quantity);
+            for (int i = 0; i < quantity; i++) {
+                taken.add(ticketIds.poll());
+            }
+            return taken;
+        }
+
+        private void add(List<Long> ids) {
+            // IDs first, so a taker that wins the counter always finds them
+            ticketIds.addAll(ids);
+            available.addAndGet(ids.size());
+        }
+
+        private void drop() {
+            int dropped = available.getAndSet(0);
+            for (int i = 0; i < dropped; i++) {
+                ticketIds.poll();
+            }
+        }
+    }
+
+    private record LeasedOrder(String orderId, String userId, int quantity, List<Long> ticketIds,
+                               CompletableFuture<ReservationResult> result) {
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.model.OrderStatus;
+import com.example.flashsale.model.ReservationStatus;
+import com.example.flashsale.model.dto.ReservationResult;
+import com.example.flashsale.service.StockReservationService;
+import com.example.flashsale.service.TicketService;
+import com.example.flashsale.util.LuaScript;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RMap;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockReservationServiceImpl implements StockReservationService {
+
+    private final RedissonClient redissonClient;
+    private final StockShards stockShards;
+    private final StockLeaseManager stockLeaseManager;
+    private final TicketService ticketService;
+
+    @Value("${flash-sale.redis.order-key-prefix}")
+    private String orderKeyPrefix;
+
+    @Value("${flash-sale.redis.order-stream-key}")
+    private String orderStreamKey;
+
+    @Value("${flash-sale.write-behind.order-ttl-seconds}")
+    private long orderTtlSeconds;
+
+    @Value("${flash-sale.write-behind.stream-max-length}")
+    private long streamMaxLength;
+
+    @Value("${flash-sale.purchase.max-tickets-per-user}")
+    private int maxTicketsPerUser;
+
+    @Value("${flash-sale.holds.ttl-seconds}")
+    private long holdTtlSeconds;
+
+    @Value("${flash-sale.redis.stock-change-channel}")
+    private String stockChangeChannel;
+
+    @Value("${flash-sale.purchase.commit-lease-ms}")
+    private long commitLeaseMs;
+
+    private LuaScript reserveScript;
+    private LuaScript releaseScript;
+    private LuaScript confirmScript;
+    private LuaScript beginCommitScript;
+    private LuaScript settleScript;
+    private LuaScript dueScript;
+
+    @PostConstruct
+    public void init() {
+        reserveScript = new LuaScript(redissonClient, "scripts/reserve.lua");
+        releaseScript = new LuaScript(redissonClient, "scripts/release.lua");
+        confirmScript = new LuaScript(redissonClient, "scripts/confirm.lua");
+        beginCommitScript = new LuaScript(redissonClient, "scripts/begin_commit.lua");
+        settleScript = new LuaScript(redissonClient, "scripts/settle.lua");
+        dueScript = new LuaScript(redissonClient, "scripts/due.lua");
+    }
+
+    @Override
+    public ReservationResult reserve(long saleId, String orderId, String userId, int quantity) {
+        return reserve(saleId, orderId, userId, quantity, Mode.IN_FLIGHT);
+    }
+
+    @Override
+    public ReservationResult reserveAndJournal(long saleId, String orderId, String userId, int quantity) {
+        return reserve(saleId, orderId, userId, quantity, Mode.WRITE_BEHIND);
+    }
+
+    @Override
+    public boolean release(long saleId, String orderId, String userId, List<Long> ticketIds) {
+        return release(saleId, orderId, userId, ticketIds, OrderStatus.PENDING, stockShards.reservationJournalKey(saleId), false);
+    }
+
+    @Override
+    public boolean beginCommit(String orderId) {
+        long claimed = beginCommitScript.eval(RScript.ReturnType.INTEGER, List.of(orderKeyPrefix + orderId),
+                String.valueOf(commitLeaseMs));
+        return claimed > 0;
+    }
+
+    @Override
+    public boolean rollbackCommit(long saleId, String orderId, String userId, List<Long> ticketIds) {
+        return release(saleId, orderId, userId, ticketIds, OrderStatus.COMMITTING, stockShards.reservationJournalKey(saleId), false);
+    }
+
+    @Override
+    public boolean rollbackExpiredCommit(long saleId, String orderId, String userId, List<Long> ticketIds) {
+        return release(saleId, orderId, userId, ticketIds, OrderStatus.COMMITTING, stockShards.reservationJournalKey(saleId), true);
+    }
+
+    @Override
+    public ReservationResult hold(long saleId, String orderId, String userId, int quantity) {
+        return reserve(saleId, orderId, userId, quantity, Mode.HOLD);
+    }
+
+    @Override
+    public boolean confirmHold(long saleId, String orderId) {
+        long confirmed = confirmScript.eval(RScript.ReturnType.INTEGER,
+                List.of(orderKeyPrefix + orderId, stockShards.holdKey(saleId), stockShards.reservationJournalKey(saleId)),
+                orderId, String.valueOf(commitLeaseMs));
+        return confirmed > 0;
+    }
+
+    @Override
+    public boolean releaseHold(long saleId, String orderId, String userId, List<Long> ticketIds) {
+        return release(saleId, orderId, userId, ticketIds, OrderStatus.HELD, stockShards.holdKey(saleId), false);
+    }
+
+    private boolean release(long saleId, String orderId, String userId, List<Long> ticketIds,
+                            OrderStatus expectedStatus, String trackingKey, boolean onlyExpiredCommit) {
+        // Stock is fungible across shards, so returned tickets go to the user's home shard
+        int shard = stockShards.homeShard(userId);
+        long released = releaseScript.eval(RScript.ReturnType.INTEGER, releaseKeys(saleId, shard, orderId, trackingKey),
+                releaseArgs(saleId, orderId, userId, expectedStatus, onlyExpiredCommit, ticketIds));
+        if (released == -2) {
+            log.info("Order {} of sale {} is still within its commit deadline. Not releasing.", orderId, saleId);
+            return false;
+        }
+        if (released < 0) {
+            log.info("Order {} of sale {} is no longer {}. Nothing to release.", orderId, saleId, expectedStatus);
+            return false;
+        }
+        log.info("Released reserved tickets {} of sale {} for user: {}", ticketIds, saleId, userId);
+        return true;
+    }
+
+    @Override
+    public void settle(long saleId, String orderId) {
+        // Fire and forget, and never fail the committed purchase: an order left in the in-flight
+        // set is found in the database by the reconciler and settled there
+        settleScript.<Long>evalReactive(RScript.ReturnType.INTEGER,
+                        List.of(orderKeyPrefix + orderId, stockShards.reservationJournalKey(saleId)), orderId)
+                .subscribe(settled -> {
+                    if (settled == 0) {
+                        // Its tickets are back in stock although they are sold; the drift check reports it
+                        log.error("Order {} of sale {} is in the database but was already released", orderId, saleId);
+                    }
+                }, e -> log.warn("Failed to settle order {} of sale {}", orderId, saleId, e));
+    }
+
+    @Override
+    public Mono<ReservationResult> reserveReactive(long saleId, String orderId, String userId, int quantity) {
+        // A null result from the lease completes empty and falls through to Redis
+        return Mono.fromFuture(() -> stockLeaseManager.reserveAsync(saleId, orderId, userId, quantity))
+                .switchIfEmpty(Mono.defer(() -> reserveReactive(saleId, orderId, userId, quantity, Mode.IN_FLIGHT, 0)));
+    }
+
+    @Override
+    public Mono<ReservationResult> reserveAndJournalReactive(long saleId, String orderId, String userId, int quantity) {
+        return reserveReactive(saleId, orderId, userId, quantity, Mode.WRITE_BEHIND, 0);
+    }
+
+    @Override
+    public Mono<Boolean> beginCommitReactive(String orderId) {
+        return beginCommitScript.<Long>evalReactive(RScript.ReturnType.INTEGER, List.of(orderKeyPrefix + orderId),
+                        String.valueOf(commitLeaseMs))
+                .map(claimed -> claimed > 0);
+    }
+
+    @Override
+    public Mono<Void> rollbackCommitReactive(long saleId, String orderId, String userId, List<Long> ticketIds) {
+        int shard = stockShards.homeShard(userId);
+        return releaseScript.<Long>evalReactive(RScript.ReturnType.INTEGER,
+                        releaseKeys(saleId, shard, orderId, stockShards.reservationJournalKey(saleId)),
+                        releaseArgs(saleId, orderId, userId, OrderStatus.COMMITTING, false, ticketIds))
+                .filter(released -> released >= 0)
+                .doOnNext(released -> log.info("Released reserved tickets {} of sale {} for user: {}",
+                        ticketIds, saleId, userId))
+                .then();
+    }
+
+    @Override
+    public List<String> findExpiredHolds(long saleId, int limit) {
+        return findDue(stockShards.holdKey(saleId), 0, limit);
+    }
+
+    @Override
+    public List<String> findReservationsOlderThan(long saleId, long ageMs, int limit) {
+        return findDue(stockShards.reservationJournalKey(saleId), ageMs, limit);
+    }
+
+    private List<String> findDue(String key, long ageMs, int limit) {
+        List<Object> members = dueScript.eval(RScript.ReturnType.MULTI, List.of(key),
+                String.valueOf(ageMs), String.valueOf(limit));
+        List<String> due = new ArrayList<>(members.size());
+        for (Object member : members) {
+            due.add(member.toString());
+        }
+        return due;
+    }
+
+    @Override
+    public long countReserved(long saleId, String userId) {
+        RMap<String, String> purchases = redissonClient.getMap(stockShards.userPurchaseKey(saleId), StringCodec.INSTANCE);
+        String count = purchases.get(userId);
+        return count == null ? 0 : Long.parseLong(count);
+    }
+
+    private ReservationResult reserve(long saleId, String orderId, String userId, int quantity, Mode mode) {
+        if (mode == Mode.IN_FLIGHT) {
+            // Served from this node's stock lease when leasing is on and the lease has enough
+            ReservationResult leased = stockLeaseManager.reserve(saleId, orderId, userId, quantity);
+            if (leased != null) {
+                return leased;
+            }
+        }
+
+        // Start at the user's home shard and fall back to the others while shards run dry;
+        // the sale is only sold out once every shard has said so
+        int shardCount = stockShards.getShardCount();
+        int homeShard = stockShards.homeShard(userId);
+
+        for (int attempt = 0; attempt < shardCount; attempt++) {
+            int shard = (homeShard + attempt) % shardCount;
+            // Per-user check, stock check, decrement, ticket ID hand-out, user bookkeeping and
+            // the order's journal, in-flight or hold entry in one round trip
+            List<Object> reply = reserveScript.eval(RScript.ReturnType.MULTI,
+                    reserveKeys(saleId, shard, orderId, mode), reserveArgs(saleId, orderId, userId, quantity, mode));
+
+            ReservationResult result = toResult(reply);
+            if (result.getStatus() != ReservationStatus.SOLD_OUT) {
+                return result;
+            }
+        }
+        observeSoldOut(saleId);
+        return new ReservationResult(ReservationStatus.SOLD_OUT, List.of());
+    }
+
+    private void observeSoldOut(long saleId) {
+        // Every shard turned the order away. The shards can still hold less than the quantity asked
+        // for, or stock can sit in leases, so the total is read (shared with concurrent callers) and
+        // the read raises the sold-out flag only if nothing is left
+        try {
+            ticketService.getAvailableTicketsCount(saleId);
+        } catch (RuntimeException e) {
+            log.warn("Failed to check the stock of sale {} after a sold-out reservation", saleId, e);
+        }
+    }
+
+    private Mono<ReservationResult> reserveReactive(long saleId, String orderId, String userId, int quantity,
+                                                    Mode mode, int attempt) {
+        int shardCount = stockShards.getShardCount();
+        if (attempt >= shardCount) {
+            return ticketService.getAvailableTicketsCountReactive(saleId)
+                    .onErrorResume(e -> {
+                        log.warn("Failed to check the stock of sale {} after a sold-out reservation", saleId, e);
+                        return Mono.empty();
+                    })
+                    .thenReturn(new ReservationResult(ReservationStatus.SOLD_OUT, List.of()));
+        }
+
+        int shard = (stockShards.homeShard(userId) + attempt) % shardCount;
+        return reserveScript.<List<Object>>evalReactive(RScript.ReturnType.MULTI,
+                        reserveKeys(saleId, shard, orderId, mode), reserveArgs(saleId, orderId, userId, quantity, mode))
+                .map(this::toResult)
+                .flatMap(result -> result.getStatus() == ReservationStatus.SOLD_OUT
+                        ? reserveReactive(saleId, orderId, userId, quantity, mode, attempt + 1)
+                        : Mono.just(result));
+    }
+
+    private List<Object> reserveKeys(long saleId, int shard, String orderId, Mode mode) {
+        return List.of(stockShards.stockKey(saleId, shard), stockShards.userPurchaseKey(saleId),
+                stockShards.poolKey(saleId, shard), orderKeyPrefix + orderId, orderStreamKey,
+                mode == Mode.HOLD ? stockShards.holdKey(saleId) : stockShards.reservationJournalKey(saleId));
+    }
+
+    private Object[] reserveArgs(long saleId, String orderId, String userId, int quantity, Mode mode) {
+        // A hold is scored by its deadline, an in-flight reservation by the time it was taken
+        String status = mode == Mode.HOLD ? OrderStatus.HELD.name() : OrderStatus.PENDING.name();
+        long scoreOffsetMs = mode == Mode.HOLD ? TimeUnit.SECONDS.toMillis(holdTtlSeconds) : 0;
+        return new Object[]{userId, String.valueOf(quantity), orderId, mode == Mode.WRITE_BEHIND ? "1" : "0",
+                String.valueOf(orderTtlSeconds), String.valueOf(streamMaxLength), String.valueOf(saleId),
+                String.valueOf(maxTicketsPerUser), status, String.valueOf(scoreOffsetMs), stockChangeChannel};
+    }
+
+    private ReservationResult toResult(List<Object> reply) {
+        ReservationStatus status = ReservationStatus.fromCode((Long) reply.get(0));
+        List<Long> ticketIds = new ArrayList<>(reply.size() - 1);
+        for (int i = 1; i < reply.size(); i++) {
+            ticketIds.add(Long.valueOf(reply.get(i).toString()));
+        }
+        return new ReservationResult(status, ticketIds);
+    }
+
+    private List<Object> releaseKeys(long saleId, int shard, String orderId, String trackingKey) {
+        return List.of(stockShards.stockKey(saleId, shard), stockShards.userPurchaseKey(saleId),
+                stockShards.poolKey(saleId, shard), orderKeyPrefix + orderId, trackingKey);
+    }
+
+    private Object[] releaseArgs(long saleId, String orderId, String userId, OrderStatus expectedStatus,
+                                 boolean onlyExpiredCommit, List<Long> ticketIds) {
+        List<Object> args = new ArrayList<>(ticketIds.size() + 6);
+        args.add(userId);
+        args.add(orderId);
+        args.add(expectedStatus.name());
+        args.add(stockChangeChannel);
+        args.add(onlyExpiredCommit ? "1" : "0");
+        args.add(String.valueOf(saleId));
+        for (Long ticketId : ticketIds) {
+            args.add(String.valueOf(ticketId));
+        }
+        return args.toArray();
+    }
+
+    private enum Mode {
+        // Tracked as in flight until the caller commits the purchase
+        IN_FLIGHT,
+        // Journaled to the order stream for write-behind persistence
+        WRITE_BEHIND,
+        // Held until confirmed or expired
+        HOLD
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.flashsale.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps each sale's inventory onto N Redis shards. Each shard owns a stock counter and a
+ * token pool, so concurrent buyers update different keys. The reservation scripts touch
+ * all shards of a sale at once, so every key of a sale carries the same hash tag and the
+ * shards live on one node: sharding reduces contention on that node's keys, it does not
+ * spread a sale across nodes. The scripts also write the untagged order hash and order
+ * stream, so they need a single Redis primary rather than a cluster.
+ */
+@Component
+public class StockShards {
+
+    @Value("${flash-sale.redis.ticket-stock-key}")
+    private String ticketStockKey;
+
+    @Value("${flash-sale.redis.ticket-pool-key}")
+    private String ticketPoolKey;
+
+    @Value("${flash-sale.redis.user-purchase-key}")
+    private String userPurchaseKey;
+
+    @Value("${flash-sale.redis.reservation-journal-key}")
+    private String reservationJournalKey;
+
+    @Value("${flash-sale.redis.hold-key}")
+    private String holdKey;
+
+    @Value("${flash-sale.redis.stock-lease-key}")
+    private String stockLeaseKey;
+
+    @Value("${flash-sale.redis.stock-lease-registry-key}")
+    private String stockLeaseRegistryKey;
+
+    @Value("${flash-sale.redis.leased-stock-key}")
+    private String leasedStockKey;
+
+    @Value("${flash-sale.stock.shards}")
+    private int shardCount;
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public String stockKey(long saleId, int shard) {
+        return ticketStockKey + ":{" + saleId + "}:" + shard;
+    }
+
+    public String poolKey(long saleId, int shard) {
+        return ticketPoolKey + ":{" + saleId + "}:" + shard;
+    }
+
+    /**
+     * Hash of user ID to the number of tickets the user holds in the sale.
+     */
+    public String userPurchaseKey(long saleId) {
+        return userPurchaseKey + ":{" + saleId + "}";
+    }
+
+    /**
+     * Sorted set of the sale's reserved but not yet committed orders, scored by reservation time.
+     */
+    public String reservationJournalKey(long saleId) {
+        return reservationJournalKey + ":{" + saleId + "}";
+    }
+
+    /**
+     * Sorted set of the sale's unconfirmed holds, scored by the time they expire.
+     */
+    public String holdKey(long saleId) {
+        return holdKey + ":{" + saleId + "}";
+    }
+
+    /**
+     * Set of the ticket IDs a node has leased from the sale's stock and not yet sold.
+     */
+    public String leaseKey(long saleId, String nodeId) {
+        return stockLeaseKey + ":{" + saleId + "}:" + nodeId;
+    }
+
+    /**
+     * Sorted set of the nodes holding a lease on the sale's stock, scored by the time the lease expires.
+     */
+    public String leaseRegistryKey(long saleId) {
+        return stockLeaseRegistryKey + ":{" + saleId + "}";
+    }
+
+    /**
+     * Counter of the sale's tickets held in leases, which are unsold but not in any shard.
+     */
+    public String leasedStockKey(long saleId) {
+        return leasedStockKey + ":{" + saleId + "}";
+    }
+
+    /**
+     * The shard a user tries first, so concurrent buyers spread evenly over the shards.
+     */
+    public int homeShard(String userId) {
+        return Math.floorMod(userId.hashCode(), shardCount);
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.model.Sale;
+import com.example.flashsale.model.dto.ProvisioningReport;
+import com.example.flashsale.model.dto.TicketDefinition;
+import com.example.flashsale.repository.TicketRepository;
+import com.example.flashsale.service.SaleService;
+import com.example.flashsale.service.TicketProvisioningService;
+import com.example.flashsale.service.TicketService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streams ticket definitions into a sale. The input is read line by line and cut into
+ * chunks; each chunk is inserted with one JDBC batch in its own transaction and then
+ * added to the Redis stock with one pipelined round trip, so tickets become purchasable
+ * while the rest of the file is still loading. Chunks are written in parallel, and the
+ * reader stops once the writers fall behind, so memory stays bounded however large the
+ * input is.
+ *
+ * A failed import keeps the chunks that already committed; the report says how many.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TicketProvisioningServiceImpl implements TicketProvisioningService {
+
+    private static final int MAX_TRACKED_JOBS = 100;
+
+    private final TicketBulkWriter ticketBulkWriter;
+    private final TicketService ticketService;
+    private final SaleService saleService;
+    private final TicketRepository ticketRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${flash-sale.provisioning.batch-size}")
+    private int batchSize;
+
+    @Value("${flash-sale.provisioning.partitions}")
+    private int partitions;
+
+    @Value("${flash-sale.provisioning.startup-file}")
+    private String startupFile;
+
+    private ExecutorService writers;
+    private ObjectReader definitionReader;
+    private Cache<String, ImportJob> jobs;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        writers = Executors.newFixedThreadPool(partitions, runnable -> {
+            Thread thread = new Thread(runnable, "ticket-provisioning-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        definitionReader = objectMapper.readerFor(TicketDefinition.class);
+        jobs = Caffeine.newBuilder()
+                .maximumSize(MAX_TRACKED_JOBS)
+                .build();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        writers.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadStartupFile() {
+        if (!StringUtils.hasText(startupFile)) {
+            return;
+        }
+
+        long saleId = saleService.getDefaultSaleId();
+        if (ticketRepository.countBySaleId(saleId) > 0) {
+            log.info("Default sale {} already has tickets. Skipping startup file {}", saleId, startupFile);
+            return;
+        }
+
+        Path path = Path.of(startupFile);
+        String name = path.getFileName().toString();
+        Format format = name.endsWith(".ndjson") || name.endsWith(".jsonl") ? Format.NDJSON : Format.CSV;
+
+        // Load in the background so the node serves status requests while the inventory grows
+        Thread.ofPlatform().daemon().name("ticket-startup-import").start(() -> {
+            try (InputStream in = Files.newInputStream(path)) {
+                importTickets(saleId, format, in);
+            } catch (IOException e) {
+                log.error("Failed to read startup file {}", startupFile, e);
+            }
+        });
+    }
+
+    @Override
+    public ProvisioningReport importTickets(long saleId, Format format, InputStream in) {
+        Sale sale = saleService.getSale(saleId);
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), saleId, format.name().toLowerCase());
+        jobs.put(job.jobId, job);
+        log.info("Started ticket import {} into sale {} from {}", job.jobId, saleId, job.source);
+
+        // At most two chunks per partition are parsed but not yet written
+        Semaphore inFlight = new Semaphore(partitions * 2);
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            List<TicketDefinition> chunk = new ArrayList<>(batchSize);
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null && job.failure.get() == null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                TicketDefinition definition = parse(format, line, lineNumber);
+                if (definition == null) {
+                    continue;
+                }
+
+                chunk.add(definition);
+                if (chunk.size() == batchSize) {
+                    writes.add(submit(job, sale, chunk, inFlight));
+                    chunk = new ArrayList<>(batchSize);
+                }
+            }
+            if (!chunk.isEmpty() && job.failure.get() == null) {
+                writes.add(submit(job, sale, chunk, inFlight));
+            }
+        } catch (IOException e) {
+            job.failure.compareAndSet(null, "Failed to read input: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            job.failure.compareAndSet(null, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.failure.compareAndSet(null, "Import interrupted");
+        }
+
+        try {
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            // Already recorded by the failed write
+        }
+
+        job.finish();
+        ProvisioningReport report = job.toReport();
+        if ("FAILED".equals(report.getStatus())) {
+            log.error("Ticket import {} into sale {} failed after {} tickets: {}",
+                    job.jobId, saleId, report.getTicketsLoaded(), report.getError());
+        } else {
+            log.info("Ticket import {} loaded {} tickets into sale {} in {} ms ({} tickets/s)", job.jobId,
+                    report.getTicketsLoaded(), saleId, report.getElapsedMs(), report.getTicketsPerSecond());
+        }
+        return report;
+    }
+
+    @Override
+    public Optional<ProvisioningReport> getJob(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId)).map(ImportJob::toReport);
+    }
+
+    @Override
+    public List<ProvisioningReport> getJobs() {
+        return jobs.asMap().values().stream()
+                .sorted(Comparator.comparingLong(job -> job.startedAt))
+                .map(ImportJob::toReport)
+                .toList();
+    }
+
+    private CompletableFuture<Void> submit(ImportJob job, Sale sale, List<TicketDefinition> chunk,
+                                           Semaphore inFlight) throws InterruptedException {
+        inFlight.acquire();
+        return CompletableFuture.runAsync(() -> write(job, sale, chunk), writers)
+                .whenComplete((ignored, error) -> {
+                    inFlight.release();
+                    if (error != null) {
+                        job.failure.compareAndSet(null, "Failed to write tickets: " + rootMessage(error));
+                    }
+                });
+    }
+
+    private void write(ImportJob job, Sale sale, List<TicketDefinition> chunk) {
+        if (job.failure.get() != null) {
+            return;
+        }
+
+        List<Long> ticketIds = ticketBulkWriter.insert(sale.getId(), sale.getPrice(), chunk);
+        ticketService.addStock(sale.getId(), ticketIds);
+        saleService.addTickets(sale.getId(), ticketIds.size());
+
+        job.loaded.add(ticketIds.size());
+        log.debug("Ticket import {} progress: {} tickets ({} tickets/s)",
+                job.jobId, job.loaded.sum(), job.ticketsPerSecond(System.nanoTime()));
+    }
+
+    private TicketDefinition parse(Format format, String line, long lineNumber) {
+        if (format == Format.NDJSON) {
+            try {
+                return definitionReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Invalid ticket on line " + lineNumber + ": " + e.getOriginalMessage());
+            }
+        }
+
+        String[] columns = line.split(",", -1);
+        String ticketNumber = columns[0].trim();
+        String price = columns.length > 1 ? columns[1].trim() : "";
+        if (lineNumber == 1 && ticketNumber.equalsIgnoreCase("ticketNumber")) {
+            // Header line
+            return null;
+        }
+        try {
+            return new TicketDefinition(ticketNumber.isEmpty() ? null : ticketNumber,
+                    price.isEmpty() ? null : new BigDecimal(price));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid price on line " + lineNumber + ": " + price);
+        }
+    }
+
+    private String rootMessage(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+
+    private static final class ImportJob {
+
+        private final String jobId;
+        private final long saleId;
+        private final String source;
+        private final long startedAt = System.nanoTime();
+        private final LongAdder loaded = new LongAdder();
+        private final AtomicReference<String> failure = new AtomicReference<>();
+        private volatile long finishedAt;
+
+        private ImportJob(String jobId, long saleId, String source) {
+            this.jobId = jobId;
+            this.saleId = saleId;
+            this.source = source;
+        }
+
+        private void finish() {
+            finishedAt = System.nanoTime();
+        }
+
+        private long ticketsPerSecond(long now) {
+            long elapsedNanos = Math.max(1, now - startedAt);
+            return loaded.sum() * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        private ProvisioningReport toReport() {
+            long end = finishedAt != 0 ? finishedAt : System.nanoTime();
+            String error = failure.get();
+            return ProvisioningReport.builder()
+                    .jobId(jobId)
+                    .saleId(saleId)
+                    .source(source)
+                    .status(finishedAt == 0 ? "RUNNING" : error != null ? "FAILED" : "COMPLETED")
+                    .ticketsLoaded(loaded.sum())
+                    .elapsedMs(TimeUnit.NANOSECONDS.toMillis(end - startedAt))
+                    .ticketsPerSecond(ticketsPerSecond(end))
+                    .error(error)
+                    .build();
+        }
+    }
+}
@@ -1,99 +1,280 @@
 package com.example.flashsale.service.impl;
 
-import com.example.flashsale.model.Ticket;
+import com.example.flashsale.cache.StockStateCache;
+import com.example.flashsale.metrics.PurchaseMetrics;
+import com.example.flashsale.model.Sale;
+import com.example.flashsale.model.dto.TicketDefinition;
+import com.example.flashsale.model.dto.TicketView;
+import com.example.flashsale.model.dto.UserTicketCount;
+import com.example.flashsale.repository.PurchaseRepository;
+import com.example.flashsale.repository.SaleRepository;
 import com.example.flashsale.repository.TicketRepository;
 import com.example.flashsale.service.TicketService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RAtomicLong;
+import org.redisson.api.RBatch;
+import org.redisson.api.RListAsync;
+import org.redisson.api.RMapAsync;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Mono;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class TicketServiceImpl implements TicketService {
 
+    private static final int POOL_SEED_CHUNK_SIZE = 1000;
+
     private final TicketRepository ticketRepository;
+    private final PurchaseRepository purchaseRepository;
+    private final SaleRepository saleRepository;
     private final RedissonClient redissonClient;
+    private final StockStateCache stockStateCache;
+    private final StockShards stockShards;
+    private final PurchaseMetrics purchaseMetrics;
+    private final ObjectMapper objectMapper;
+    private final TicketBulkWriter ticketBulkWriter;
+    private final CoalescingStockReader coalescingStockReader;
+
+    @Value("${flash-sale.tickets.max-page-size}")
+    private int maxPageSize;
+
+    @Value("${flash-sale.provisioning.batch-size}")
+    private int provisioningBatchSize;
 
-    @Value("${flash-sale.total-tickets}")
-    private int totalTickets;
+    @Value("${flash-sale.redis.stock-change-channel}")
+    private String stockChangeChannel;
 
-    @Value("${flash-sale.redis.ticket-stock-key}")
-    private String ticketStockKey;
+    private ObjectWriter ticketWriter;
 
     @PostConstruct
     public void init() {
-        initializeTickets(totalTickets);
+        ticketWriter = objectMapper.writerFor(TicketView.class);
     }
 
     @Override
-    @Transactional
-    public void initializeTickets(int totalTickets) {
-        // Check if tickets are already initialized
-        if (ticketRepository.count() > 0) {
-            log.info("Tickets already initialized. Skipping initialization.");
-
-            // Update Redis stock count based on the database state
-            long availableTickets = ticketRepository.countAvailableTickets();
-            RAtomicLong stock = redissonClient.getAtomicLong(ticketStockKey);
-            stock.set(availableTickets);
-            log.info("Updated Redis stock count to: {}", availableTickets);
+    public void initializeTickets(Sale sale) {
+        long saleId = sale.getId();
 
+        if (sale.isProvisioned()) {
+            log.info("Tickets of sale {} already initialized. Skipping initialization.", saleId);
+            reseedStock(saleId);
             return;
         }
 
-        log.info("Initializing {} tickets", totalTickets);
+        // Batches are committed one by one, so a previous start may have stopped part way
+        long existing = ticketRepository.countBySaleId(saleId);
+        log.info("Initializing {} tickets for sale {} ({} already written)", sale.getTotalTickets(), saleId, existing);
+        long start = System.nanoTime();
 
-        // Create tickets in the database
-        for (int i = 0; i < totalTickets; i++) {
-            Ticket ticket = Ticket.builder()
-                    .ticketNumber(UUID.randomUUID().toString())
-                    .price(BigDecimal.valueOf(99.99))
-                    .reserved(false)
-                    .sold(false)
-                    .createdAt(LocalDateTime.now())
-                    .updatedAt(LocalDateTime.now())
-                    .build();
+        if (existing == 0) {
+            // A fresh inventory starts a fresh sale, so forget previous buyers and leftover stock
+            seedStock(saleId, List.of(), List.of());
+        } else {
+            reseedStock(saleId);
+        }
 
-            ticketRepository.save(ticket);
+        // Create the missing tickets in JDBC batches and add each batch to the stock once it has committed
+        for (long from = existing; from < sale.getTotalTickets(); from += provisioningBatchSize) {
+            int size = (int) Math.min(provisioningBatchSize, sale.getTotalTickets() - from);
+            List<Long> ticketIds = ticketBulkWriter.insert(saleId, sale.getPrice(),
+                    Collections.nCopies(size, new TicketDefinition()));
+            addStock(saleId, ticketIds);
         }
+        saleRepository.markProvisioned(saleId);
+        sale.setProvisioned(true);
 
-        // Initialize Redis stock
-        RAtomicLong stock = redissonClient.getAtomicLong(ticketStockKey);
-        stock.set(totalTickets);
+        log.info("Successfully initialized {} tickets and Redis stock for sale {} in {} ms",
+                sale.getTotalTickets(), saleId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
 
-        log.info("Successfully initialized {} tickets and Redis stock", totalTickets);
+    private void reseedStock(long saleId) {
+        // Update Redis stock count and token pool based on the database state; holds do not
+        // survive the reseed, so their tickets go back on sale
+        ticketRepository.clearReserved(saleId);
+        List<Long> availableTicketIds = ticketRepository.findUnsoldTicketIds(saleId);
+        seedStock(saleId, availableTicketIds, purchaseRepository.countTicketsByUser(saleId));
+        log.info("Updated Redis stock count of sale {} to: {}", saleId, availableTicketIds.size());
     }
 
     @Override
-    public long getAvailableTicketsCount() {
-        RAtomicLong stock = redissonClient.getAtomicLong(ticketStockKey);
-        return stock.get();
+    public void addStock(long saleId, List<Long> ticketIds) {
+        List<List<String>> shardTicketIds = dealToShards(ticketIds);
+
+        // One pipelined round trip appends the IDs to the pools and raises the counters
+        RBatch batch = redissonClient.createBatch();
+        for (int shard = 0; shard < shardTicketIds.size(); shard++) {
+            List<String> ids = shardTicketIds.get(shard);
+            if (ids.isEmpty()) {
+                continue;
+            }
+            RListAsync<String> pool = batch.getList(stockShards.poolKey(saleId, shard), StringCodec.INSTANCE);
+            for (int from = 0; from < ids.size(); from += POOL_SEED_CHUNK_SIZE) {
+                pool.addAllAsync(ids.subList(from, Math.min(from + POOL_SEED_CHUNK_SIZE, ids.size())));
+            }
+            batch.getAtomicLong(stockShards.stockKey(saleId, shard)).addAndGetAsync(ids.size());
+        }
+        batch.getTopic(stockChangeChannel, StringCodec.INSTANCE).publishAsync(String.valueOf(saleId));
+        batch.execute();
+
+        stockStateCache.reset(saleId, readTotalStock(saleId));
+    }
+
+    private void seedStock(long saleId, List<Long> ticketIds, List<UserTicketCount> userTickets) {
+        List<List<String>> shardTicketIds = dealToShards(ticketIds);
+        Collection<String> leaseHolders = redissonClient.<String>getScoredSortedSet(
+                stockShards.leaseRegistryKey(saleId), StringCodec.INSTANCE).readAll();
+
+        RBatch batch = redissonClient.createBatch();
+        for (int shard = 0; shard < shardTicketIds.size(); shard++) {
+            List<String> ids = shardTicketIds.get(shard);
+            RListAsync<String> pool = batch.getList(stockShards.poolKey(saleId, shard), StringCodec.INSTANCE);
+            pool.deleteAsync();
+            for (int from = 0; from < ids.size(); from += POOL_SEED_CHUNK_SIZE) {
+                pool.addAllAsync(ids.subList(from, Math.min(from + POOL_SEED_CHUNK_SIZE, ids.size())));
+            }
+            batch.getAtomicLong(stockShards.stockKey(saleId, shard)).setAsync(ids.size());
+        }
+        // The stock now mirrors the database, so reservations in flight before the reseed are settled
+        // and stock leases are void; nodes still selling from one find it gone and start over
+        batch.getScoredSortedSet(stockShards.reservationJournalKey(saleId)).deleteAsync();
+        // Per-user counts of reservations that were dropped would block those users, so the
+        // counts are rebuilt from what each user actually bought
+        RMapAsync<String, String> userPurchases = batch.getMap(stockShards.userPurchaseKey(saleId), StringCodec.INSTANCE);
+        userPurchases.deleteAsync();
+        for (int from = 0; from < userTickets.size(); from += POOL_SEED_CHUNK_SIZE) {
+            Map<String, String> chunk = new HashMap<>();
+            for (UserTicketCount count : userTickets.subList(from, Math.min(from + POOL_SEED_CHUNK_SIZE, userTickets.size()))) {
+                chunk.put(count.getUserId(), String.valueOf(count.getTickets()));
+            }
+            userPurchases.putAllAsync(chunk);
+        }
+        batch.getScoredSortedSet(stockShards.holdKey(saleId)).deleteAsync();
+        for (String nodeId : leaseHolders) {
+            batch.getSet(stockShards.leaseKey(saleId, nodeId)).deleteAsync();
+        }
+        batch.getScoredSortedSet(stockShards.leaseRegistryKey(saleId)).deleteAsync();
+        batch.getAtomicLong(stockShards.leasedStockKey(saleId)).deleteAsync();
+        batch.getTopic(stockChangeChannel, StringCodec.INSTANCE).publishAsync(String.valueOf(saleId));
+        batch.execute();
+
+        stockStateCache.reset(saleId, ticketIds.size());
+    }
+
+    private List<List<String>> dealToShards(List<Long> ticketIds) {
+        // Deal the ticket IDs round-robin over the shards; purchases pop IDs from a shard's
+        // pool instead of scanning for unsold tickets
+        int shardCount = stockShards.getShardCount();
+        List<List<String>> shardTicketIds = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            shardTicketIds.add(new ArrayList<>(ticketIds.size() / shardCount + 1));
+        }
+        for (int i = 0; i < ticketIds.size(); i++) {
+            shardTicketIds.get(i % shardCount).add(String.valueOf(ticketIds.get(i)));
+        }
+        return shardTicketIds;
+    }
+
+    private long readTotalStock(long saleId) {
+        // Read every shard counter and the leased count in one pipelined round trip
+        RBatch batch = redissonClient.createBatch();
+        for (int shard = 0; shard < stockShards.getShardCount(); shard++) {
+            batch.getAtomicLong(stockShards.stockKey(saleId, shard)).getAsync();
+        }
+        batch.getAtomicLong(stockShards.leasedStockKey(saleId)).getAsync();
+
+        long total = 0;
+        for (Object shardStock : batch.execute().getResponses()) {
+            total += Math.max(0, (Long) shardStock);
+        }
+        return total;
     }
 
     @Override
-    public boolean checkTicketAvailability(int quantity) {
-        RAtomicLong stock = redissonClient.getAtomicLong(ticketStockKey);
-        return stock.get() >= quantity;
+    public long getAvailableTicketsCount(long saleId) {
+        // Once sold out, answer from the local snapshot without touching Redis
+        if (stockStateCache.isSoldOut(saleId)) {
+            return 0;
+        }
+
+        long available = coalescingStockReader.read(saleId);
+        stockStateCache.observeStock(saleId, available);
+        return available;
     }
 
     @Override
-    public List<Ticket> getAllTickets() {
-        return ticketRepository.findAll();
+    public Mono<Long> getAvailableTicketsCountReactive(long saleId) {
+        if (stockStateCache.isSoldOut(saleId)) {
+            return Mono.just(0L);
+        }
+
+        // The read is shared with other callers, so one subscriber cancelling must not cancel it
+        return Mono.fromFuture(coalescingStockReader.readAsync(saleId), true)
+                .doOnNext(available -> stockStateCache.observeStock(saleId, available));
     }
 
     @Override
-    public List<Ticket> getAvailableTickets() {
-        return ticketRepository.findBySold(false);
+    public long readAvailableTickets(long saleId) {
+        return readTotalStock(saleId);
+    }
+
+    @Override
+    public boolean isSoldOut(long saleId) {
+        return stockStateCache.isSoldOut(saleId);
+    }
+
+    @Override
+    public boolean checkTicketAvailability(long saleId, int quantity) {
+        long start = System.nanoTime();
+        if (stockStateCache.isSoldOut(saleId)) {
+            purchaseMetrics.recordStage(PurchaseMetrics.STAGE_STOCK_CHECK, "sold_out_cached", start);
+            return false;
+        }
+
+        long available = coalescingStockReader.read(saleId);
+        stockStateCache.observeStock(saleId, available);
+        boolean sufficient = available >= quantity;
+        purchaseMetrics.recordStage(PurchaseMetrics.STAGE_STOCK_CHECK, sufficient ? "available" : "sold_out", start);
+        return sufficient;
+    }
+
+    @Override
+    public List<TicketView> getTickets(long after, int limit, boolean availableOnly) {
+        int pageSize = Math.clamp(limit, 1, maxPageSize);
+        return ticketRepository.findPageAfter(after, availableOnly ? Boolean.FALSE : null, Limit.of(pageSize));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportTickets(boolean availableOnly, OutputStream out) throws IOException {
+        // One JSON document per line, written as rows arrive, so memory does not grow with the inventory
+        try (Stream<TicketView> tickets = ticketRepository.streamAll(availableOnly ? Boolean.FALSE : null)) {
+            Iterator<TicketView> iterator = tickets.iterator();
+            while (iterator.hasNext()) {
+                out.write(ticketWriter.writeValueAsBytes(iterator.next()));
+                out.write('\n');
+            }
+        }
+        out.flush();
     }
-}
\ No newline at end of file
+}
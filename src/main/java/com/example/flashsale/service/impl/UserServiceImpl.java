@@ -3,20 +3,79 @@ package com.example.flashsale.service.impl;
 import com.example.flashsale.model.User;
 import com.example.flashsale.repository.UserRepository;
 import com.example.flashsale.service.UserService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Optional;
 
+/**
+ * Users are looked up on every purchase, so known users are served from a bounded local
+ * cache and unknown IDs are remembered in a short-lived negative cache. A purchase for a
+ * known user needs no database read and a garbage user ID is rejected without a query.
+ * Creating a user clears its negative entry on every node through Redis pub/sub.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final RedissonClient redissonClient;
+
+    @Value("${flash-sale.redis.user-event-channel}")
+    private String userEventChannel;
+
+    @Value("${flash-sale.user-cache.size}")
+    private long cacheSize;
+
+    @Value("${flash-sale.user-cache.ttl-seconds}")
+    private long cacheTtlSeconds;
+
+    @Value("${flash-sale.user-cache.negative-size}")
+    private long negativeCacheSize;
+
+    @Value("${flash-sale.user-cache.negative-ttl-seconds}")
+    private long negativeCacheTtlSeconds;
+
+    private Cache<String, User> users;
+    private Cache<String, Boolean> unknownUsers;
+
+    private RTopic topic;
+    private int listenerId;
+
+    @PostConstruct
+    public void init() {
+        users = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .build();
+        unknownUsers = Caffeine.newBuilder()
+                .maximumSize(negativeCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(negativeCacheTtlSeconds))
+                .build();
+
+        topic = redissonClient.getTopic(userEventChannel, StringCodec.INSTANCE);
+        listenerId = topic.addListener(String.class, (channel, userId) -> unknownUsers.invalidate(userId));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        topic.removeListener(listenerId);
+    }
 
     @Override
     @Transactional
@@ -36,16 +95,42 @@ public class UserServiceImpl implements UserService {
                 .createdAt(LocalDateTime.now())
                 .build();
 
-        return userRepository.save(newUser);
+        User savedUser = userRepository.save(newUser);
+
+        // Only publish the user once it is visible to other transactions
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                users.put(userId, savedUser);
+                unknownUsers.invalidate(userId);
+                topic.publish(userId);
+            }
+        });
+
+        return savedUser;
     }
 
     @Override
     public Optional<User> getUserByUserId(String userId) {
-        return userRepository.findByUserId(userId);
+        User cached = users.getIfPresent(userId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        if (unknownUsers.getIfPresent(userId) != null) {
+            return Optional.empty();
+        }
+
+        Optional<User> user = userRepository.findByUserId(userId);
+        if (user.isPresent()) {
+            users.put(userId, user.get());
+        } else {
+            unknownUsers.put(userId, Boolean.TRUE);
+        }
+        return user;
     }
 
     @Override
     public boolean existsByUserId(String userId) {
-        return userRepository.existsByUserId(userId);
+        return getUserByUserId(userId).isPresent();
     }
-}
\ No newline at end of file
+}
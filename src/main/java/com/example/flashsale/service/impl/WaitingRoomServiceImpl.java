@@ -0,0 +1,293 @@
+package com.example.flashsale.service.impl;
+
+import com.example.flashsale.metrics.PurchaseMetrics;
+import com.example.flashsale.model.dto.WaitingRoomStatus;
+import com.example.flashsale.model.dto.WaitingRoomTicket;
+import com.example.flashsale.service.SaleService;
+import com.example.flashsale.service.TicketService;
+import com.example.flashsale.service.WaitingRoomService;
+import com.example.flashsale.util.LuaScript;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Virtual waiting room. Buyers join before the sale and get a position from an atomic
+ * sequence in Redis together with a signed token. An admission tick, run by whichever
+ * node wins the tick lease, advances the "admitted up to" watermark at a rate derived
+ * from the purchase throughput measured across all nodes, so buyers arrive at the
+ * purchase endpoint in waves the system can sustain.
+ *
+ * Tokens are HMAC-signed, so any node can check a token and compare its position with
+ * the watermark it refreshed on the last tick without calling Redis.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WaitingRoomServiceImpl implements WaitingRoomService {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String PLACEHOLDER_SECRET = "change-me-before-the-sale";
+    // Hash-tagged alike so the join script's keys share a slot
+    private static final String POSITIONS_KEY = "{queue}:positions";
+    private static final String SEQUENCE_KEY = "{queue}:sequence";
+
+    private final RedissonClient redissonClient;
+    private final TicketService ticketService;
+    private final SaleService saleService;
+    private final PurchaseMetrics purchaseMetrics;
+
+    @Value("${flash-sale.waiting-room.enabled}")
+    private boolean enabled;
+
+    @Value("${flash-sale.redis.waiting-room-key-prefix}")
+    private String keyPrefix;
+
+    @Value("${flash-sale.waiting-room.token-secret}")
+    private String tokenSecret;
+
+    @Value("${flash-sale.waiting-room.tick-ms}")
+    private long tickMs;
+
+    @Value("${flash-sale.waiting-room.initial-admit-per-second}")
+    private double initialAdmitPerSecond;
+
+    @Value("${flash-sale.waiting-room.max-admit-per-second}")
+    private double maxAdmitPerSecond;
+
+    @Value("${flash-sale.waiting-room.headroom}")
+    private double headroom;
+
+    private LuaScript joinScript;
+    private Mac macPrototype;
+    private ScheduledExecutorService scheduler;
+
+    // Refreshed from Redis on every tick
+    private volatile long admittedUpTo;
+    private volatile double admitPerSecond;
+
+    // Used only by the tick thread
+    private long flushedCompletions;
+    private long lastCompleted = -1;
+    private long lastObservedAt;
+    private double measuredThroughput;
+
+    @PostConstruct
+    public void start() throws GeneralSecurityException {
+        // Anyone who knows the shipped secret could mint an admitted token for any position
+        if (enabled && (tokenSecret == null || tokenSecret.isBlank() || PLACEHOLDER_SECRET.equals(tokenSecret))) {
+            throw new IllegalStateException("flash-sale.waiting-room.token-secret must be set to a private value "
+                    + "when the waiting room is enabled");
+        }
+        joinScript = new LuaScript(redissonClient, "scripts/waiting_room_join.lua");
+        macPrototype = Mac.getInstance(HMAC_ALGORITHM);
+        macPrototype.init(new SecretKeySpec(tokenSecret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+        if (!enabled) {
+            return;
+        }
+
+        admitPerSecond = initialAdmitPerSecond;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "waiting-room-admission");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public long getTickIntervalMs() {
+        return tickMs;
+    }
+
+    @Override
+    public WaitingRoomTicket join(String userId) {
+        // Joining again returns the original position instead of a place at the back
+        long position = joinScript.eval(RScript.ReturnType.INTEGER,
+                List.of(keyPrefix + POSITIONS_KEY, keyPrefix + SEQUENCE_KEY), userId);
+
+        log.debug("User {} holds waiting room position {}", userId, position);
+        return WaitingRoomTicket.builder()
+                .userId(userId)
+                .position(position)
+                .token(sign(userId, position))
+                .build();
+    }
+
+    @Override
+    public Optional<WaitingRoomStatus> getStatus(String token) {
+        return parse(token).map(parsed -> {
+            long watermark = admittedUpTo;
+            boolean admitted = parsed.position() <= watermark;
+            long ahead = Math.max(0, parsed.position() - watermark);
+            return WaitingRoomStatus.builder()
+                    .position(parsed.position())
+                    .admittedUpTo(watermark)
+                    .admitted(admitted)
+                    .estimatedWaitSeconds(admitted ? 0 : (long) Math.ceil(ahead / Math.max(1.0, admitPerSecond)))
+                    .soldOut(ticketService.isSoldOut(saleService.getDefaultSaleId()))
+                    .build();
+        });
+    }
+
+    @Override
+    public boolean isAdmitted(String token, String userId) {
+        return parse(token)
+                .filter(parsed -> parsed.userId().equals(userId))
+                .filter(parsed -> parsed.position() <= admittedUpTo)
+                .isPresent();
+    }
+
+    void tick() {
+        try {
+            long completions = purchaseMetrics.getCompletedPurchases();
+            long delta = completions - flushedCompletions;
+            flushedCompletions = completions;
+
+            RBatch batch = redissonClient.createBatch();
+            RFuture<Long> completedFuture = batch.getAtomicLong(keyPrefix + "completed").addAndGetAsync(delta);
+            RFuture<Long> admittedFuture = batch.getAtomicLong(keyPrefix + "admitted").getAsync();
+            RFuture<Long> issuedFuture = batch.getAtomicLong(keyPrefix + SEQUENCE_KEY).getAsync();
+            RFuture<Double> rateFuture = batch.getAtomicDouble(keyPrefix + "rate").getAsync();
+            batch.execute();
+
+            long admitted = admittedFuture.toCompletableFuture().join();
+            admittedUpTo = admitted;
+            double rate = rateFuture.toCompletableFuture().join();
+            if (rate > 0) {
+                admitPerSecond = rate;
+            }
+            observeThroughput(completedFuture.toCompletableFuture().join());
+
+            // One node per tick advances the watermark
+            boolean leader = redissonClient.getBucket(keyPrefix + "tick", StringCodec.INSTANCE)
+                    .setIfAbsent("1", Duration.ofMillis(Math.max(1, tickMs - 10)));
+            if (leader) {
+                advance(admitted, issuedFuture.toCompletableFuture().join());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Waiting room admission tick failed", e);
+        }
+    }
+
+    private void observeThroughput(long completed) {
+        long now = System.nanoTime();
+        if (lastCompleted >= 0) {
+            double seconds = (now - lastObservedAt) / 1_000_000_000d;
+            double sample = (completed - lastCompleted) / seconds;
+            measuredThroughput = measuredThroughput == 0 ? sample : 0.7 * measuredThroughput + 0.3 * sample;
+        }
+        lastCompleted = completed;
+        lastObservedAt = now;
+    }
+
+    private void advance(long admitted, long issued) {
+        if (admitted >= issued) {
+            return;
+        }
+
+        long target;
+        double rate;
+        if (ticketService.isSoldOut(saleService.getDefaultSaleId())) {
+            // Nothing left to protect; let everyone through so they stop waiting
+            target = issued;
+            rate = admitPerSecond;
+        } else {
+            // Admit slightly more than the system completed recently, so the rate climbs
+            // while purchases keep up and settles once they stop keeping up
+            rate = Math.min(maxAdmitPerSecond, Math.max(initialAdmitPerSecond, measuredThroughput * headroom));
+            long step = Math.max(1, Math.round(rate * tickMs / 1000.0));
+            target = Math.min(issued, admitted + step);
+        }
+
+        counter("admitted").set(target);
+        redissonClient.getAtomicDouble(keyPrefix + "rate").set(rate);
+        admittedUpTo = target;
+        admitPerSecond = rate;
+        log.debug("Waiting room admitted up to {} of {} at {} per second", target, issued, Math.round(rate));
+    }
+
+    private RAtomicLong counter(String name) {
+        return redissonClient.getAtomicLong(keyPrefix + name);
+    }
+
+    private String sign(String userId, long position) {
+        String payload = userId + ":" + position;
+        return encode(payload.getBytes(StandardCharsets.UTF_8)) + "." + encode(hmac(payload));
+    }
+
+    private Optional<ParsedToken> parse(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+
+        int separator = token.lastIndexOf('.');
+        if (separator <= 0) {
+            return Optional.empty();
+        }
+
+        try {
+            String payload = new String(Base64.getUrlDecoder().decode(token.substring(0, separator)), StandardCharsets.UTF_8);
+            byte[] signature = Base64.getUrlDecoder().decode(token.substring(separator + 1));
+            if (!MessageDigest.isEqual(signature, hmac(payload))) {
+                return Optional.empty();
+            }
+
+            int colon = payload.lastIndexOf(':');
+            return Optional.of(new ParsedToken(payload.substring(0, colon), Long.parseLong(payload.substring(colon + 1))));
+        } catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+            return Optional.empty();
+        }
+    }
+
+    private byte[] hmac(String payload) {
+        // Mac instances are not thread-safe; cloning the keyed prototype is cheaper than re-keying
+        try {
+            Mac mac = (Mac) macPrototype.clone();
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Unable to sign waiting room token", e);
+        }
+    }
+
+    private String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private record ParsedToken(String userId, long position) {
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.flashsale.util;
+
+import com.example.flashsale.model.dto.PurchaseRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator for the purchase endpoint.
+ *
+ * Requests are started on a fixed schedule ({@code simulator.rate} per second) regardless of
+ * how quickly earlier ones complete, each on its own virtual thread, and spread across
+ * {@code simulator.users} synthetic users. Latency is measured from the time a request was
+ * scheduled to start rather than when it was actually sent, so a stalled server shows up in
+ * the percentiles instead of silently lowering the offered load (coordinated omission).
+ *
+ * After the run the ticket status and every user's purchase count are read back and checked
+ * against the acknowledged purchases to detect overselling.
+ *
+ * Standalone: ./gradlew loadTest -PloadTestArgs="--rate=50000 --duration-seconds=30 --users=100000"
+ * In-process: ./gradlew bootRun --args="--spring.profiles.active=simulator --simulator.rate=5000"
+ */
+@Slf4j
+public class LoadGenerator {
+
+    enum Outcome {
+        SUCCESS, SOLD_OUT, REJECTED, ERROR
+    }
+
+    private final LoadGeneratorSettings settings;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<Outcome, Histogram> latencies = new EnumMap<>(Outcome.class);
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final AtomicInteger maxInFlight = new AtomicInteger(0);
+    private final AtomicLong loggedErrors = new AtomicLong(0);
+
+    public LoadGenerator(LoadGeneratorSettings settings) {
+        this.settings = settings;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(settings.getRequestTimeoutMs()))
+                .build();
+        for (Outcome outcome : Outcome.values()) {
+            latencies.put(outcome, new ConcurrentHistogram(3));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> properties = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (arg.startsWith("--") && separator > 2) {
+                properties.put("simulator." + arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+
+        boolean passed = new LoadGenerator(LoadGeneratorSettings.from(properties::get)).run();
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * Runs the load test and returns whether the oversell checks passed.
+     */
+    public boolean run() throws Exception {
+        String runId = UUID.randomUUID().toString().substring(0, 8);
+        List<String> userIds = createUsers(runId);
+
+        long availableBefore = readAvailableTickets();
+        log.info("Ticket status before run: available tickets = {}", availableBefore);
+
+        long started = System.nanoTime();
+        long sent = drive(userIds);
+        double elapsedSeconds = (System.nanoTime() - started) / 1_000_000_000d;
+
+        report(sent, elapsedSeconds);
+        return checkForOversell(userIds, availableBefore);
+    }
+
+    private List<String> createUsers(String runId) throws InterruptedException {
+        List<String> userIds = new ArrayList<>(settings.getUsers());
+        for (int i = 0; i < settings.getUsers(); i++) {
+            userIds.add("loadgen-" + runId + "-" + i);
+        }
+
+        log.info("Creating {} users", userIds.size());
+        AtomicInteger failures = new AtomicInteger(0);
+        forEachUser(userIds, (index, userId) -> {
+            String username = "user_" + runId + "_" + index;
+            HttpRequest request = HttpRequest.newBuilder(URI.create(settings.getBaseUrl() + "/users"
+                            + "?userId=" + userId + "&username=" + username + "&email=" + username + "@example.com"))
+                    .timeout(Duration.ofMillis(settings.getRequestTimeoutMs()))
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 201) {
+                failures.incrementAndGet();
+            }
+        });
+
+        if (failures.get() > 0) {
+            throw new IllegalStateException("Failed to create " + failures.get() + " of " + userIds.size() + " users");
+        }
+        return userIds;
+    }
+
+    private long drive(List<String> userIds) {
+        long intervalNanos = Math.max(1, Math.round(1_000_000_000d / settings.getRate()));
+        long total = (long) settings.getRate() * settings.getDurationSeconds();
+        long maxLagNanos = 0;
+
+        log.info("Offering {} purchase requests/s for {} s across {} users",
+                settings.getRate(), settings.getDurationSeconds(), userIds.size());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            long start = System.nanoTime();
+            for (long i = 0; i < total; i++) {
+                long intendedStart = start + i * intervalNanos;
+                long delay = intendedStart - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                } else {
+                    maxLagNanos = Math.max(maxLagNanos, -delay);
+                }
+
+                String userId = userIds.get(ThreadLocalRandom.current().nextInt(userIds.size()));
+                executor.execute(() -> purchase(userId, intendedStart));
+            }
+        }
+
+        // A large lag means the generator itself could not keep up with the requested rate
+        log.info("Max dispatch lag behind schedule: {} ms", TimeUnit.NANOSECONDS.toMillis(maxLagNanos));
+        return total;
+    }
+
+    private void purchase(String userId, long intendedStart) {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        Outcome outcome;
+        try {
+            String body = objectMapper.writeValueAsString(PurchaseRequest.builder()
+                    .userId(userId)
+                    .quantity(settings.getQuantity())
+                    .build());
+            HttpRequest request = HttpRequest.newBuilder(URI.create(settings.getBaseUrl() + "/purchases"))
+                    .timeout(Duration.ofMillis(settings.getRequestTimeoutMs()))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+
+            outcome = classify(httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+        } catch (IOException e) {
+            if (loggedErrors.incrementAndGet() <= 10) {
+                log.warn("Purchase request for user {} failed: {}", userId, e.toString());
+            }
+            outcome = Outcome.ERROR;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = Outcome.ERROR;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart);
+        latencies.get(outcome).recordValue(Math.max(0, latencyMicros));
+    }
+
+    private Outcome classify(int statusCode) {
+        return switch (statusCode) {
+            case 200, 202 -> Outcome.SUCCESS;
+            case 400 -> Outcome.SOLD_OUT;
+            case 409, 429 -> Outcome.REJECTED;
+            default -> Outcome.ERROR;
+        };
+    }
+
+    private void report(long sent, double elapsedSeconds) {
+        log.info("Sent {} purchase requests in {} s ({} req/s achieved), max in flight = {}",
+                sent, String.format("%.1f", elapsedSeconds), Math.round(sent / elapsedSeconds), maxInFlight.get());
+
+        Histogram all = new Histogram(3);
+        for (Map.Entry<Outcome, Histogram> entry : latencies.entrySet()) {
+            all.add(entry.getValue());
+            logPercentiles(entry.getKey().name(), entry.getValue());
+        }
+        logPercentiles("ALL", all);
+    }
+
+    private void logPercentiles(String label, Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            return;
+        }
+        log.info("{}: count = {}, p50 = {} ms, p99 = {} ms, p99.9 = {} ms, max = {} ms",
+                label, histogram.getTotalCount(),
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()));
+    }
+
+    private double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private boolean checkForOversell(List<String> userIds, long availableBefore) throws Exception {
+        long acknowledged = latencies.get(Outcome.SUCCESS).getTotalCount() * settings.getQuantity();
+        long availableAfter = readAvailableTickets();
+        long sold = availableBefore - availableAfter;
+        long perUserLimit = (long) settings.getQuantity() * settings.getPurchasesPerUser();
+
+        // In write-behind mode purchases reach the database shortly after they are acknowledged
+        long deadline = System.currentTimeMillis() + settings.getSettleTimeoutMs();
+        AtomicLongArray counts = readPurchaseCounts(userIds);
+        while (sum(counts) < acknowledged && System.currentTimeMillis() < deadline) {
+            Thread.sleep(200);
+            counts = readPurchaseCounts(userIds);
+        }
+
+        long persisted = sum(counts);
+        long usersOverLimit = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            if (counts.get(i) > perUserLimit) {
+                usersOverLimit++;
+            }
+        }
+
+        log.info("Ticket status after run: available tickets = {}, sold during run = {}", availableAfter, sold);
+        log.info("Tickets acknowledged = {}, persisted for load test users = {}", acknowledged, persisted);
+
+        boolean passed = true;
+        if (availableAfter < 0) {
+            log.error("Oversell: available tickets went negative ({})", availableAfter);
+            passed = false;
+        }
+        if (sold != acknowledged) {
+            log.error("Stock moved by {} tickets but {} were acknowledged", sold, acknowledged);
+            passed = false;
+        }
+        if (persisted != acknowledged) {
+            log.error("{} tickets were persisted but {} were acknowledged", persisted, acknowledged);
+            passed = false;
+        }
+        if (usersOverLimit > 0) {
+            log.error("{} users hold more than {} tickets", usersOverLimit, perUserLimit);
+            passed = false;
+        }
+
+        log.info("Oversell checks {}", passed ? "passed" : "FAILED");
+        return passed;
+    }
+
+    private long readAvailableTickets() throws IOException, InterruptedException {
+        // Read straight from the stock counters, not the shared snapshot; tickets still held in
+        // stock leases are unsold and counted as available
+        return getData("/tickets/status?fresh=true").path("availableTickets").asLong();
+    }
+
+    private AtomicLongArray readPurchaseCounts(List<String> userIds) throws InterruptedException {
+        AtomicLongArray counts = new AtomicLongArray(userIds.size());
+        forEachUser(userIds, (index, userId) ->
+                counts.set(index, getData("/purchases/user/" + userId + "/count").path("purchaseCount").asLong()));
+        return counts;
+    }
+
+    private long sum(AtomicLongArray values) {
+        long total = 0;
+        for (int i = 0; i < values.length(); i++) {
+            total += values.get(i);
+        }
+        return total;
+    }
+
+    private JsonNode getData(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(settings.getBaseUrl() + path))
+                .timeout(Duration.ofMillis(settings.getRequestTimeoutMs()))
+                .GET()
+                .build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("GET " + path + " returned " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body()).path("data");
+    }
+
+    private void forEachUser(List<String> userIds, UserCall call) throws InterruptedException {
+        Semaphore permits = new Semaphore(settings.getSetupConcurrency());
+        AtomicInteger failures = new AtomicInteger(0);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < userIds.size(); i++) {
+                int index = i;
+                permits.acquire();
+                executor.execute(() -> {
+                    try {
+                        call.apply(index, userIds.get(index));
+                    } catch (Exception e) {
+                        if (failures.incrementAndGet() == 1) {
+                            log.warn("Request for user {} failed: {}", userIds.get(index), e.toString());
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+
+        if (failures.get() > 0) {
+            throw new IllegalStateException(failures.get() + " per-user requests failed");
+        }
+    }
+
+    @FunctionalInterface
+    private interface UserCall {
+        void apply(int index, String userId) throws Exception;
+    }
+}
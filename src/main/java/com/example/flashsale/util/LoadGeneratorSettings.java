@@ -0,0 +1,44 @@
+package com.example.flashsale.util;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Settings for {@link LoadGenerator}, read from {@code simulator.*} properties.
+ */
+@Value
+@Builder
+public class LoadGeneratorSettings {
+
+    String baseUrl;
+    int rate;
+    int durationSeconds;
+    int users;
+    int quantity;
+    int purchasesPerUser;
+    int setupConcurrency;
+    long requestTimeoutMs;
+    long settleTimeoutMs;
+
+    public static LoadGeneratorSettings from(Function<String, String> properties) {
+        return LoadGeneratorSettings.builder()
+                .baseUrl(Optional.ofNullable(properties.apply("simulator.base-url")).orElse("http://localhost:8080/api"))
+                .rate(intProperty(properties, "simulator.rate", 1000))
+                .durationSeconds(intProperty(properties, "simulator.duration-seconds", 10))
+                .users(intProperty(properties, "simulator.users", 10000))
+                .quantity(intProperty(properties, "simulator.quantity", 1))
+                .purchasesPerUser(intProperty(properties, "simulator.purchases-per-user", 1))
+                .setupConcurrency(intProperty(properties, "simulator.setup-concurrency", 256))
+                .requestTimeoutMs(intProperty(properties, "simulator.request-timeout-ms", 10000))
+                .settleTimeoutMs(intProperty(properties, "simulator.settle-timeout-ms", 5000))
+                .build();
+    }
+
+    private static int intProperty(Function<String, String> properties, String name, int defaultValue) {
+        String value = properties.apply(name);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+}
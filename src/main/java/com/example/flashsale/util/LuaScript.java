@@ -0,0 +1,97 @@
+package com.example.flashsale.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScript;
+import org.redisson.api.RScriptReactive;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.RedissonReactiveClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A Lua script loaded from the classpath and executed in Redis by its SHA digest.
+ * The script body is sent to Redis only once; if Redis loses its script cache
+ * (restart or SCRIPT FLUSH) the script is reloaded transparently. Scripts can be
+ * executed through the blocking or the reactive Redisson API.
+ */
+@Slf4j
+public class LuaScript {
+
+    private final RedissonClient redissonClient;
+    private final String name;
+    private final String source;
+    private volatile String sha;
+    private volatile RedissonReactiveClient reactiveClient;
+
+    public LuaScript(RedissonClient redissonClient, String classpathLocation) {
+        this.redissonClient = redissonClient;
+        this.name = classpathLocation;
+        try {
+            this.source = StreamUtils.copyToString(
+                    new ClassPathResource(classpathLocation).getInputStream(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read Lua script: " + classpathLocation, e);
+        }
+    }
+
+    public <R> R eval(RScript.ReturnType returnType, List<Object> keys, Object... args) {
+        RScript script = redissonClient.getScript(StringCodec.INSTANCE);
+        String digest = sha;
+        if (digest == null) {
+            digest = load(script);
+        }
+
+        try {
+            return script.evalSha(RScript.Mode.READ_WRITE, digest, returnType, keys, args);
+        } catch (RedisException e) {
+            if (e.getMessage() == null || !e.getMessage().contains("NOSCRIPT")) {
+                throw e;
+            }
+            log.warn("Lua script {} missing from the Redis script cache. Reloading.", name);
+            return script.evalSha(RScript.Mode.READ_WRITE, load(script), returnType, keys, args);
+        }
+    }
+
+    public <R> Mono<R> evalReactive(RScript.ReturnType returnType, List<Object> keys, Object... args) {
+        RScriptReactive script = reactive().getScript(StringCodec.INSTANCE);
+
+        return Mono.defer(() -> sha != null ? Mono.just(sha) : loadReactive(script))
+                .flatMap(digest -> script.<R>evalSha(RScript.Mode.READ_WRITE, digest, returnType, keys, args))
+                .onErrorResume(this::isNoScript, e -> {
+                    log.warn("Lua script {} missing from the Redis script cache. Reloading.", name);
+                    return loadReactive(script)
+                            .flatMap(digest -> script.<R>evalSha(RScript.Mode.READ_WRITE, digest, returnType, keys, args));
+                });
+    }
+
+    private boolean isNoScript(Throwable e) {
+        return e instanceof RedisException && e.getMessage() != null && e.getMessage().contains("NOSCRIPT");
+    }
+
+    private RedissonReactiveClient reactive() {
+        RedissonReactiveClient client = reactiveClient;
+        if (client == null) {
+            client = redissonClient.reactive();
+            reactiveClient = client;
+        }
+        return client;
+    }
+
+    private Mono<String> loadReactive(RScriptReactive script) {
+        return script.scriptLoad(source).doOnNext(digest -> sha = digest);
+    }
+
+    private String load(RScript script) {
+        String digest = script.scriptLoad(source);
+        sha = digest;
+        return digest;
+    }
+}
@@ -0,0 +1,19 @@
+-- Claims an in-flight order for its database write. The reconciler only releases PENDING
+-- orders, and a COMMITTING order only once its commit deadline has passed, so once this
+-- succeeds the order's tickets cannot go back to stock behind the writer's back; the
+-- writer settles the order or rolls it back itself.
+-- KEYS[1] order hash
+-- ARGV[1] ms the writer has to commit; the deadline is taken from the Redis clock
+-- Returns 1 if the order moved from PENDING to COMMITTING, 0 if it is no longer pending
+
+-- TIME is non-deterministic, so replicate the effects rather than the script
+redis.replicate_commands()
+
+if redis.call('HGET', KEYS[1], 'status') ~= 'PENDING' then
+    return 0
+end
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+redis.call('HSET', KEYS[1], 'status', 'COMMITTING', 'commitDeadline', now + tonumber(ARGV[1]))
+return 1
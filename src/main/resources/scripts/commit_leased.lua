@@ -0,0 +1,65 @@
+-- Records a batch of orders a node sold from its lease. An order is only accepted while
+-- every one of its tickets is still in the node's lease, so tickets of a lease that was
+-- given back or reclaimed cannot be sold twice. Accepted orders get the same per-user
+-- check and bookkeeping as an in-flight reservation made by reserve.lua. Only synchronous
+-- purchases sell from leases and they write the order right away, so accepted orders are
+-- claimed for that write here, as begin_commit.lua would, saving the caller a round trip.
+-- KEYS[1] the node's lease (set of leased ticket IDs)
+-- KEYS[2] hash of tickets bought per user
+-- KEYS[3] in-flight reservations (sorted set of order IDs scored in ms)
+-- KEYS[4] leased stock counter
+-- KEYS[5..n] order hash of each order, in the order of ARGV
+-- ARGV[1] maximum tickets per user
+-- ARGV[2] order hash ttl in seconds
+-- ARGV[3] sale id
+-- ARGV[4] channel the sale id is published to when its stock changes
+-- ARGV[5] ms the writer has to commit, as for begin_commit
+-- ARGV[6..n] four values per order: order id, user id, quantity, comma-separated ticket IDs
+-- Returns one code per order: 0 (OK), 2 (USER_LIMIT) or 3 (the tickets are no longer leased)
+
+-- TIME is non-deterministic, so replicate the effects rather than the script
+redis.replicate_commands()
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local maxPerUser = tonumber(ARGV[1])
+local commitDeadline = now + tonumber(ARGV[5])
+
+local codes = {}
+local sold = 0
+for i = 1, (#ARGV - 5) / 4 do
+    local orderId = ARGV[4 * i + 2]
+    local userId = ARGV[4 * i + 3]
+    local quantity = tonumber(ARGV[4 * i + 4])
+    local joinedIds = ARGV[4 * i + 5]
+
+    local ticketIds = {}
+    local code = 0
+    for ticketId in string.gmatch(joinedIds, '[^,]+') do
+        ticketIds[#ticketIds + 1] = ticketId
+        if redis.call('SISMEMBER', KEYS[1], ticketId) == 0 then
+            code = 3
+        end
+    end
+
+    if code == 0 and tonumber(redis.call('HGET', KEYS[2], userId) or '0') + quantity > maxPerUser then
+        code = 2
+    end
+
+    if code == 0 then
+        redis.call('SREM', KEYS[1], unpack(ticketIds))
+        redis.call('HINCRBY', KEYS[2], userId, quantity)
+        redis.call('HSET', KEYS[4 + i], 'status', 'COMMITTING', 'commitDeadline', commitDeadline,
+                'saleId', ARGV[3], 'userId', userId, 'quantity', quantity, 'ticketIds', joinedIds)
+        redis.call('EXPIRE', KEYS[4 + i], tonumber(ARGV[2]))
+        redis.call('ZADD', KEYS[3], now, orderId)
+        sold = sold + quantity
+    end
+    codes[i] = code
+end
+
+if sold > 0 then
+    redis.call('DECRBY', KEYS[4], sold)
+    redis.call('PUBLISH', ARGV[4], ARGV[3])
+end
+return codes
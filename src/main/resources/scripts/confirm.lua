@@ -0,0 +1,30 @@
+-- Turns a hold into an in-flight purchase. Only a HELD order whose deadline has not
+-- passed is confirmed, and the status flip is what the expiry sweep's release checks, so
+-- a confirmation and an expiry cannot both win. The caller writes the purchase right
+-- away, so the order goes straight to COMMITTING and is tracked like any synchronous
+-- reservation being committed.
+-- KEYS[1] order hash
+-- KEYS[2] hold deadlines
+-- KEYS[3] in-flight reservations
+-- ARGV[1] order id
+-- ARGV[2] ms the writer has to commit, as for begin_commit
+-- Returns 1 if confirmed, 0 if the hold expired, -1 if the order is not held
+
+-- TIME is non-deterministic, so replicate the effects rather than the script
+redis.replicate_commands()
+
+if redis.call('HGET', KEYS[1], 'status') ~= 'HELD' then
+    return -1
+end
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local deadline = redis.call('ZSCORE', KEYS[2], ARGV[1])
+if not deadline or tonumber(deadline) < now then
+    return 0
+end
+
+redis.call('HSET', KEYS[1], 'status', 'COMMITTING', 'commitDeadline', now + tonumber(ARGV[2]))
+redis.call('ZREM', KEYS[2], ARGV[1])
+redis.call('ZADD', KEYS[3], now, ARGV[1])
+return 1
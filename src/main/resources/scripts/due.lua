@@ -0,0 +1,11 @@
+-- Lists the entries of a sorted set scored in ms that are due by the Redis clock, the
+-- clock the reserve and confirm scripts score and check deadlines with, so a sweep and a
+-- confirmation never disagree about whether a deadline has passed.
+-- KEYS[1] sorted set scored in ms (hold deadlines or in-flight reservation times)
+-- ARGV[1] ms an entry must be past its score to be due
+-- ARGV[2] maximum number of entries returned
+-- Returns the due members, oldest first
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+return redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', now - tonumber(ARGV[1]), 'LIMIT', 0, tonumber(ARGV[2]))
@@ -0,0 +1,35 @@
+-- Leases up to a block of tickets from one stock shard to a node. The tickets leave the
+-- shard's counter and pool for the node's lease set, so other nodes can no longer sell
+-- them, and are counted as leased so the sale's total stock does not change.
+-- KEYS[1] ticket stock counter
+-- KEYS[2] ticket token pool
+-- KEYS[3] the node's lease (set of leased ticket IDs)
+-- KEYS[4] lease registry (sorted set of node IDs scored by lease expiry in ms)
+-- KEYS[5] leased stock counter
+-- ARGV[1] tickets wanted
+-- ARGV[2] node id
+-- ARGV[3] ms the lease lasts unless renewed; the expiry is taken from the Redis clock
+-- Returns the leased ticket IDs; fewer than wanted, or none, once the shard runs dry
+
+-- TIME is non-deterministic, so replicate the effects rather than the script
+redis.replicate_commands()
+
+local stock = tonumber(redis.call('GET', KEYS[1]) or '0')
+local wanted = math.min(tonumber(ARGV[1]), stock)
+if wanted <= 0 then
+    return {}
+end
+
+local ticketIds = redis.call('LRANGE', KEYS[2], 0, wanted - 1)
+if #ticketIds == 0 then
+    return {}
+end
+
+redis.call('LTRIM', KEYS[2], #ticketIds, -1)
+redis.call('DECRBY', KEYS[1], #ticketIds)
+redis.call('SADD', KEYS[3], unpack(ticketIds))
+redis.call('INCRBY', KEYS[5], #ticketIds)
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+redis.call('ZADD', KEYS[4], now + tonumber(ARGV[3]), ARGV[2])
+return ticketIds
@@ -0,0 +1,31 @@
+-- Per-user rate limit as a generic cell rate algorithm (equivalent to a token bucket).
+-- Only the theoretical arrival time of the next request is stored, in microseconds.
+-- A caller may take several tokens at once and admit requests against them locally.
+-- KEYS[1] = rate limit key for the user
+-- ARGV[1] = emission interval in microseconds (1 / rate)
+-- ARGV[2] = burst tolerance in microseconds (burst * emission interval)
+-- ARGV[3] = tokens wanted
+-- Returns {tokens granted, microseconds until a token is available when none was granted}
+
+-- Use the Redis clock so every node applies the limit against the same time
+redis.replicate_commands()
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+
+local interval = tonumber(ARGV[1])
+local tolerance = tonumber(ARGV[2])
+
+local tat = tonumber(redis.call('GET', KEYS[1]) or now)
+if tat < now then
+    tat = now
+end
+
+local available = math.floor((now + tolerance - tat) / interval)
+if available <= 0 then
+    return {0, tat + interval - tolerance - now}
+end
+
+local granted = math.min(tonumber(ARGV[3]), available)
+local newTat = tat + granted * interval
+redis.call('SET', KEYS[1], newTat, 'PX', math.ceil((newTat - now) / 1000) + 1)
+return {granted, 0}
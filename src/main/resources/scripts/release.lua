@@ -0,0 +1,50 @@
+-- Returns a reserved order's tickets to stock, takes them off the user's count and marks
+-- the order failed. Only an order still in the expected status is released, so a request
+-- rolling back its own reservation and the reconciler sweeping it (or a hold being
+-- confirmed and expiring) cannot both act on the same tickets. The reconciler releases a
+-- COMMITTING order only once its commit deadline has passed by the Redis clock, so it never
+-- releases an order a request is still writing to the database.
+-- KEYS[1] ticket stock counter
+-- KEYS[2] hash of tickets bought per user
+-- KEYS[3] ticket token pool
+-- KEYS[4] order hash
+-- KEYS[5] in-flight reservations or hold deadlines
+-- ARGV[1] user id
+-- ARGV[2] order id
+-- ARGV[3] expected order status (PENDING, COMMITTING or HELD)
+-- ARGV[4] channel the sale id is published to when its stock changes
+-- ARGV[5] 1 to release only once the order's commit deadline has passed, 0 otherwise
+-- ARGV[6] sale id
+-- ARGV[7..n] reserved ticket IDs
+-- Returns the number of tickets released, -1 if the order was no longer in the expected
+-- status, or -2 if its commit deadline has not passed yet
+
+-- TIME is non-deterministic, so replicate the effects rather than the script
+redis.replicate_commands()
+
+if redis.call('HGET', KEYS[4], 'status') ~= ARGV[3] then
+    redis.call('ZREM', KEYS[5], ARGV[2])
+    return -1
+end
+
+if ARGV[5] == '1' then
+    local time = redis.call('TIME')
+    local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+    local deadline = redis.call('HGET', KEYS[4], 'commitDeadline')
+    if deadline and tonumber(deadline) > now then
+        return -2
+    end
+end
+
+local ticketCount = #ARGV - 6
+if ticketCount > 0 then
+    redis.call('RPUSH', KEYS[3], unpack(ARGV, 7))
+    redis.call('INCRBY', KEYS[1], ticketCount)
+    redis.call('PUBLISH', ARGV[4], ARGV[6])
+    if redis.call('HINCRBY', KEYS[2], ARGV[1], -ticketCount) <= 0 then
+        redis.call('HDEL', KEYS[2], ARGV[1])
+    end
+end
+redis.call('HSET', KEYS[4], 'status', 'FAILED')
+redis.call('ZREM', KEYS[5], ARGV[2])
+return ticketCount
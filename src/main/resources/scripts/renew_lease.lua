@@ -0,0 +1,18 @@
+-- Extends a node's stock lease. A lease that is no longer registered was reclaimed after
+-- the node failed to renew it in time, or dropped by a reseed, and is not brought back.
+-- KEYS[1] lease registry (sorted set of node IDs scored by lease expiry in ms)
+-- ARGV[1] node id
+-- ARGV[2] ms the lease lasts from now by the Redis clock
+-- Returns 1 if renewed, 0 if the node holds no lease
+
+-- TIME is non-deterministic, so replicate the effects rather than the script
+redis.replicate_commands()
+
+if not redis.call('ZSCORE', KEYS[1], ARGV[1]) then
+    return 0
+end
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+redis.call('ZADD', KEYS[1], 'XX', now + tonumber(ARGV[2]), ARGV[1])
+return 1
@@ -0,0 +1,72 @@
+-- Atomically reserves stock for a user and hands out the ticket IDs it owns.
+-- KEYS[1] ticket stock counter
+-- KEYS[2] hash of tickets bought per user
+-- KEYS[3] ticket token pool (list of unsold ticket IDs)
+-- KEYS[4] order hash
+-- KEYS[5] order stream
+-- KEYS[6] in-flight reservations or hold deadlines (sorted set of order IDs scored in ms)
+-- ARGV[1] user id
+-- ARGV[2] quantity
+-- ARGV[3] order id
+-- ARGV[4] '1' to journal the order to the stream for write-behind persistence, '0' to track
+--         it as an in-flight reservation until the caller commits it
+-- ARGV[5] order hash ttl in seconds
+-- ARGV[6] approximate maximum length of the order stream
+-- ARGV[7] sale id
+-- ARGV[8] maximum tickets per user
+-- ARGV[9] order status to record: PENDING, or HELD for a hold awaiting confirmation
+-- ARGV[10] milliseconds added to the reservation time in the KEYS[6] score (the hold TTL)
+-- ARGV[11] channel the sale id is published to when its stock changes
+-- Returns {0 (OK), ticketId...}, {1} (SOLD_OUT) or {2} (USER_LIMIT)
+
+-- TIME is non-deterministic, so replicate the effects rather than the script
+redis.replicate_commands()
+
+local quantity = tonumber(ARGV[2])
+local bought = tonumber(redis.call('HGET', KEYS[2], ARGV[1]) or '0')
+if bought + quantity > tonumber(ARGV[8]) then
+    return {2}
+end
+
+local stock = tonumber(redis.call('GET', KEYS[1]) or '0')
+if stock < quantity then
+    return {1}
+end
+
+local ticketIds = {}
+for i = 1, quantity do
+    local ticketId = redis.call('LPOP', KEYS[3])
+    if not ticketId then
+        -- The pool ran dry before the counter did; give back what we took
+        if #ticketIds > 0 then
+            redis.call('LPUSH', KEYS[3], unpack(ticketIds))
+        end
+        return {1}
+    end
+    ticketIds[i] = ticketId
+end
+
+redis.call('DECRBY', KEYS[1], quantity)
+redis.call('HINCRBY', KEYS[2], ARGV[1], quantity)
+redis.call('PUBLISH', ARGV[11], ARGV[7])
+
+local joinedIds = table.concat(ticketIds, ',')
+redis.call('HSET', KEYS[4], 'status', ARGV[9], 'saleId', ARGV[7], 'userId', ARGV[1],
+        'quantity', ARGV[2], 'ticketIds', joinedIds)
+redis.call('EXPIRE', KEYS[4], tonumber(ARGV[5]))
+
+if ARGV[4] == '1' then
+    redis.call('XADD', KEYS[5], 'MAXLEN', '~', ARGV[6], '*',
+            'orderId', ARGV[3], 'saleId', ARGV[7], 'userId', ARGV[1], 'quantity', ARGV[2],
+            'ticketIds', joinedIds)
+else
+    local time = redis.call('TIME')
+    local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+    redis.call('ZADD', KEYS[6], now + tonumber(ARGV[10]), ARGV[3])
+end
+
+local result = {0}
+for i = 1, #ticketIds do
+    result[i + 1] = ticketIds[i]
+end
+return result
@@ -0,0 +1,37 @@
+-- Returns every ticket still leased to a node to a stock shard and drops the node's lease.
+-- Orders the node sold from the lease but has not recorded yet are refused by
+-- commit_leased.lua afterwards, so returning a lease that is still in use is safe.
+-- KEYS[1] ticket stock counter
+-- KEYS[2] ticket token pool
+-- KEYS[3] the node's lease (set of leased ticket IDs)
+-- KEYS[4] lease registry (sorted set of node IDs scored by lease expiry in ms)
+-- KEYS[5] leased stock counter
+-- ARGV[1] node id
+-- ARGV[2] 1 to return the lease only if it has expired by the Redis clock, 0 otherwise
+-- Returns the number of tickets returned, or -1 if the lease was renewed in the meantime
+
+-- TIME is non-deterministic, so replicate the effects rather than the script
+redis.replicate_commands()
+
+if ARGV[2] == '1' then
+    local time = redis.call('TIME')
+    local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+    local deadline = redis.call('ZSCORE', KEYS[4], ARGV[1])
+    if deadline and tonumber(deadline) > now then
+        return -1
+    end
+end
+
+local ticketIds = redis.call('SMEMBERS', KEYS[3])
+-- unpack() is limited by the Lua stack, so push large leases in chunks
+for from = 1, #ticketIds, 1000 do
+    redis.call('RPUSH', KEYS[2], unpack(ticketIds, from, math.min(from + 999, #ticketIds)))
+end
+
+if #ticketIds > 0 then
+    redis.call('INCRBY', KEYS[1], #ticketIds)
+    redis.call('DECRBY', KEYS[5], #ticketIds)
+    redis.call('DEL', KEYS[3])
+end
+redis.call('ZREM', KEYS[4], ARGV[1])
+return #ticketIds
@@ -0,0 +1,17 @@
+-- Marks an order whose purchase is in the database as completed and drops it from the
+-- in-flight reservations. An order that was already released (FAILED) or has expired is
+-- left as it is: its tickets went back to stock, and completing it would hide that.
+-- KEYS[1] order hash
+-- KEYS[2] in-flight reservations
+-- ARGV[1] order id
+-- Returns 1 if the order was completed, 0 if it had been released or expired
+
+redis.call('ZREM', KEYS[2], ARGV[1])
+
+local status = redis.call('HGET', KEYS[1], 'status')
+if not status or status == 'FAILED' then
+    return 0
+end
+
+redis.call('HSET', KEYS[1], 'status', 'COMPLETED')
+return 1
@@ -0,0 +1,15 @@
+-- Returns the user's waiting room position, assigning the next one on the first join.
+-- Checking and assigning in one step keeps concurrent joins of the same user from each
+-- drawing a number, which would leave gaps the admission watermark has to walk past.
+-- KEYS[1] = hash of user ID to position
+-- KEYS[2] = position sequence
+-- ARGV[1] = user ID
+
+local position = redis.call('HGET', KEYS[1], ARGV[1])
+if position then
+    return tonumber(position)
+end
+
+position = redis.call('INCR', KEYS[2])
+redis.call('HSET', KEYS[1], ARGV[1], position)
+return position
@@ -0,0 +1,91 @@
+package com.example.flashsale.codec;
+
+import com.example.flashsale.model.dto.ApiResponse;
+import com.example.flashsale.model.dto.IdempotentResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the CompactBinaryValueCodec class.
+ * These tests verify that registered types survive a round trip, that other types fall
+ * back to JSON, and that values from a newer schema version are rejected.
+ */
+class CompactBinaryValueCodecTest {
+
+    private JsonValueCodec json;
+    private CompactBinaryValueCodec codec;
+
+    @BeforeEach
+    void setUp() {
+        json = new JsonValueCodec(new ObjectMapper().findAndRegisterModules());
+        codec = new CompactBinaryValueCodec(List.of(new IdempotentResponseSchema()), json);
+    }
+
+    /**
+     * Tests the round trip of a completed idempotent response.
+     * Verifies that:
+     * - The decoded response equals the original, including the body's typed values
+     * - The encoding is smaller than the JSON encoding
+     */
+    @Test
+    void encodeDecode_IdempotentResponse_RoundTrips() {
+        // Arrange
+        Map<String, Object> data = new HashMap<>();
+        data.put("orderId", "order-1");
+        data.put("userId", "user-1");
+        data.put("quantityPurchased", 1);
+        data.put("remainingTickets", 41L);
+        data.put("soldOut", false);
+        ApiResponse<Map<String, Object>> body = ApiResponse.success("Purchase successful", data);
+        body.setTimestamp(LocalDateTime.of(2025, 5, 1, 12, 30, 15, 123_456_789));
+        IdempotentResponse response = IdempotentResponse.completed(7L, 1, 200, body);
+
+        // Act
+        byte[] encoded = codec.encode(response);
+        Object decoded = codec.decode(encoded);
+
+        // Assert
+        assertEquals(response, decoded);
+        assertTrue(encoded.length < json.encode(response).length);
+    }
+
+    /**
+     * Tests a value without a schema.
+     * Verifies that it is written behind the fallback tag and decoded by the JSON codec.
+     */
+    @Test
+    void encodeDecode_UnregisteredType_FallsBackToJson() {
+        // Arrange
+        List<String> value = new ArrayList<>(List.of("a", "b"));
+
+        // Act
+        byte[] encoded = codec.encode(value);
+
+        // Assert
+        assertEquals(CompactBinaryValueCodec.FALLBACK_TAG, encoded[0]);
+        assertEquals(value, codec.decode(encoded));
+    }
+
+    /**
+     * Tests reading a value written by a newer schema version.
+     * Verifies that the codec refuses it instead of misreading the fields.
+     */
+    @Test
+    void decode_NewerSchemaVersion_Throws() {
+        // Arrange
+        byte[] encoded = codec.encode(IdempotentResponse.inProgress(1L, 1));
+        encoded[1] = (byte) (new IdempotentResponseSchema().version() + 1);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(encoded));
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.flashsale.controller;
+
+import com.example.flashsale.model.dto.ApiResponse;
+import com.example.flashsale.model.dto.IdempotentResponse;
+import com.example.flashsale.model.dto.PurchaseRequest;
+import com.example.flashsale.model.dto.PurchaseResult;
+import com.example.flashsale.service.IdempotencyService;
+import com.example.flashsale.service.PurchaseService;
+import com.example.flashsale.service.TicketService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for idempotent purchases in the PurchaseHandler class.
+ * These tests verify that a request carrying an idempotency key is processed once
+ * and that duplicates are answered from the stored outcome.
+ * The tests use Mockito to mock the service dependencies.
+ */
+@ExtendWith(MockitoExtension.class)
+class PurchaseHandlerTest {
+
+    @Mock
+    private PurchaseService purchaseService;
+
+    @Mock
+    private TicketService ticketService;
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    @InjectMocks
+    private PurchaseHandler purchaseHandler;
+
+    private static final long SALE_ID = 1L;
+
+    private PurchaseRequest request;
+
+    /**
+     * Sets up test fixtures before each test method.
+     * Creates a purchase request for one ticket.
+     */
+    @BeforeEach
+    void setUp() {
+        request = PurchaseRequest.builder()
+                .userId("test123")
+                .quantity(1)
+                .build();
+    }
+
+    /**
+     * Tests the first request with an idempotency key.
+     * Verifies that:
+     * - The key is claimed before the purchase runs
+     * - The purchase is processed once
+     * - The outcome is stored under the key
+     */
+    @Test
+    void purchase_WithNewIdempotencyKey_ProcessesAndStoresOutcome() {
+        // Arrange
+        when(idempotencyService.find("test123", "key-1")).thenReturn(Optional.empty());
+        when(idempotencyService.tryClaim("test123", "key-1", SALE_ID, 1)).thenReturn(true);
+        when(ticketService.checkTicketAvailability(SALE_ID, 1)).thenReturn(true);
+        when(purchaseService.purchaseTickets(SALE_ID, request)).thenReturn(PurchaseResult.completed("order-1"));
+
+        // Act
+        ResponseEntity<ApiResponse<Map<String, Object>>> response =
+                purchaseHandler.purchase(SALE_ID, request, "key-1");
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("order-1", response.getBody().getData().get("orderId"));
+
+        verify(purchaseService).purchaseTickets(SALE_ID, request);
+        verify(idempotencyService).complete(eq("test123"), eq("key-1"), any(IdempotentResponse.class));
+    }
+
+    /**
+     * Tests a duplicate request whose first attempt has completed.
+     * Verifies that:
+     * - The stored response is returned as is
+     * - The purchase logic is not reached
+     */
+    @Test
+    void purchase_WithCompletedIdempotencyKey_ReplaysStoredResponse() {
+        // Arrange
+        ApiResponse<Map<String, Object>> body = ApiResponse.success("Purchase successful", Map.of("orderId", "order-1"));
+        when(idempotencyService.find("test123", "key-1"))
+                .thenReturn(Optional.of(IdempotentResponse.completed(SALE_ID, 1, 200, body)));
+
+        // Act
+        ResponseEntity<ApiResponse<Map<String, Object>>> response =
+                purchaseHandler.purchase(SALE_ID, request, "key-1");
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(body, response.getBody());
+        assertEquals("true", response.getHeaders().getFirst("Idempotent-Replayed"));
+
+        verifyNoInteractions(purchaseService);
+        verify(ticketService, never()).checkTicketAvailability(anyLong(), anyInt());
+        verify(idempotencyService, never()).tryClaim(any(), any(), anyLong(), anyInt());
+    }
+
+    /**
+     * Tests a duplicate request that arrives while the first attempt is still running.
+     * Verifies that:
+     * - Response has CONFLICT status
+     * - The purchase logic is not reached
+     */
+    @Test
+    void purchase_WithIdempotencyKeyInProgress_ReturnsConflict() {
+        // Arrange
+        when(idempotencyService.find("test123", "key-1"))
+                .thenReturn(Optional.of(IdempotentResponse.inProgress(SALE_ID, 1)));
+
+        // Act
+        ResponseEntity<ApiResponse<Map<String, Object>>> response =
+                purchaseHandler.purchase(SALE_ID, request, "key-1");
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertFalse(response.getBody().isSuccess());
+
+        verifyNoInteractions(purchaseService);
+        verify(ticketService, never()).checkTicketAvailability(anyLong(), anyInt());
+    }
+
+    /**
+     * Tests a request with an idempotency key once the sale is sold out.
+     * Verifies that:
+     * - The request is rejected on the local sold-out flag
+     * - The idempotency store and the purchase logic are not reached
+     */
+    @Test
+    void purchase_WhenSoldOut_RejectsBeforeIdempotencyLookup() {
+        // Arrange
+        when(ticketService.isSoldOut(SALE_ID)).thenReturn(true);
+
+        // Act
+        ResponseEntity<ApiResponse<Map<String, Object>>> response =
+                purchaseHandler.purchase(SALE_ID, request, "key-1");
+
+        // Assert
+        assertFalse(response.getBody().isSuccess());
+
+        verifyNoInteractions(idempotencyService, purchaseService);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.flashsale.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the TokenBucket class.
+ * These tests verify that the bucket admits its burst and then rejects with the
+ * time until the next token, including under concurrent use.
+ */
+class TokenBucketTest {
+
+    /**
+     * Tests that a full bucket admits exactly its burst.
+     * Verifies that:
+     * - The first burst requests are admitted
+     * - The next request is rejected with a positive wait
+     * - The wait is at most one emission interval
+     */
+    @Test
+    void tryAcquire_AdmitsBurstThenRejects() {
+        // Arrange
+        TokenBucket bucket = new TokenBucket(1, 3);
+
+        // Act & Assert
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryAcquire());
+        }
+        long waitNanos = bucket.tryAcquire();
+        assertTrue(waitNanos > 0);
+        assertTrue(waitNanos <= TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * Tests the bucket under contention.
+     * Verifies that concurrent callers are admitted no more than the burst in total.
+     */
+    @Test
+    void tryAcquire_UnderContention_AdmitsNoMoreThanBurst() throws InterruptedException {
+        // Arrange
+        TokenBucket bucket = new TokenBucket(0.001, 100);
+        AtomicInteger admitted = new AtomicInteger(0);
+
+        // Act
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 1000; i++) {
+                executor.execute(() -> {
+                    if (bucket.tryAcquire() == 0) {
+                        admitted.incrementAndGet();
+                    }
+                });
+            }
+        }
+
+        // Assert
+        assertEquals(100, admitted.get());
+    }
+}